@@ -0,0 +1,258 @@
+package com.aqire.design.creation.abs;
+
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 系列索引生成器
+ * <p>
+ * 注解处理器：收集所有标注了 GUIFamily 的具体工厂，生成同一个包里的 GUIFamilyIndex，
+ * 用 switch 按名字直接 new 出工厂。生成的代码只有字面量和构造调用，
+ * 启动时不扫描类路径、不读取配置文件、不使用反射。
+ * <p>
+ * 生成的 GUIFamilyIndex 提交在 src 里，不带处理器也能直接编译。处理器放在单独的 processor
+ * 源码目录，通过 META-INF/services/javax.annotation.processing.Processor 注册，只有放到处理器路径上
+ * 才会运行；运行时检查提交的索引和标注是否一致，不一致时编译失败，加上 -Aguifamily.update=true
+ * 则直接改写源码目录里的索引。标注的类必须实现 GUIFactory，并且有索引所在的包能调用的无参构造函数。
+ * <pre>
+ * javac -encoding UTF-8 -d out/processor $(find processor -name '*.java')
+ * cp -r processor/META-INF out/processor/
+ * javac -encoding UTF-8 -processorpath out/processor -d out/production $(find src -name '*.java')
+ * </pre>
+ *
+ * @date 2026/10/17 18:00
+ * --------------------------------------------
+ */
+@SupportedAnnotationTypes(GUIFamilyProcessor.ANNOTATION)
+@SupportedOptions(GUIFamilyProcessor.UPDATE)
+public class GUIFamilyProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "com.aqire.design.creation.abs.GUIFamily";
+    static final String FACTORY = "com.aqire.design.creation.abs.GUIFactory";
+    static final String INDEX = "GUIFamilyIndex";
+    static final String UPDATE = "guifamily.update";
+
+    // 系列名 -> 工厂、按钮、复选框的类名，按名字排序让生成结果稳定
+    private final Map<String, String[]> families = new TreeMap<>();
+    private String packageName;
+    private boolean written;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation != null) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                collect((TypeElement) element, annotation);
+            }
+        }
+        // 所有标注的工厂都在第一轮的源码里，收集完就检查，缺少索引时生成的文件还能在下一轮参与编译
+        if (!written && !families.isEmpty()) {
+            written = true;
+            check(generate());
+        }
+        // GUIFamily 只由这个处理器处理
+        return true;
+    }
+
+    private void collect(TypeElement factory, TypeElement annotation) {
+        if (factory.getKind() != ElementKind.CLASS || factory.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(factory, "@GUIFamily 只能标在具体工厂类上");
+            return;
+        }
+        TypeElement guiFactory = processingEnv.getElementUtils().getTypeElement(FACTORY);
+        if (guiFactory != null && !processingEnv.getTypeUtils().isAssignable(factory.asType(), guiFactory.asType())) {
+            error(factory, "@GUIFamily 标注的类必须实现 GUIFactory");
+            return;
+        }
+        if (!hasNoArgConstructor(factory)) {
+            error(factory, "@GUIFamily 标注的类必须有非 private 的无参构造函数，生成的索引用它创建工厂");
+            return;
+        }
+        String name = null;
+        String button = null;
+        String checkbox = null;
+        for (AnnotationMirror mirror : factory.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                String key = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if ("value".equals(key)) {
+                    name = (String) value;
+                } else if ("button".equals(key)) {
+                    button = ((TypeMirror) value).toString();
+                } else if ("checkbox".equals(key)) {
+                    checkbox = ((TypeMirror) value).toString();
+                }
+            }
+        }
+        if (name == null || button == null || checkbox == null) {
+            error(factory, "@GUIFamily 必须给出系列名、按钮和复选框类型");
+            return;
+        }
+        if (name.isEmpty()) {
+            error(factory, "@GUIFamily 的系列名不能为空");
+            return;
+        }
+        String factoryPackage = processingEnv.getElementUtils().getPackageOf(factory).getQualifiedName().toString();
+        if (packageName == null) {
+            packageName = factoryPackage;
+        } else if (!packageName.equals(factoryPackage)) {
+            error(factory, "所有系列必须在同一个包里：" + packageName);
+            return;
+        }
+        String[] previous = families.put(name, new String[]{factory.getQualifiedName().toString(), button, checkbox});
+        if (previous != null && !previous[0].equals(factory.getQualifiedName().toString())) {
+            error(factory, "系列名重复：" + name + "，已由 " + previous[0] + " 使用");
+        }
+    }
+
+    // 索引和工厂在同一个包里，public、protected 和包内可见的构造函数都能调用
+    private static boolean hasNoArgConstructor(TypeElement factory) {
+        if (factory.getNestingKind().isNested() && !factory.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (Element member : factory.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String generate() {
+        StringBuilder names = new StringBuilder();
+        StringBuilder creates = new StringBuilder();
+        for (Map.Entry<String, String[]> family : families.entrySet()) {
+            String name = literal(family.getKey());
+            names.append(names.length() == 0 ? "" : ", ").append(name);
+            creates.append("            case ").append(name).append(":\n")
+                    .append("                return new ").append(family.getValue()[0]).append("();\n");
+        }
+        return "package " + packageName + ";\n\n"
+                + "/**\n"
+                + " * 系列索引\n"
+                + " * <p>\n"
+                + " * 由 GUIFamilyProcessor 根据 @GUIFamily 标注生成，不要手工修改。\n"
+                + " * --------------------------------------------\n"
+                + " */\n"
+                + "final class " + INDEX + " {\n"
+                + "    private static final String[] NAMES = {" + names + "};\n\n"
+                + "    private " + INDEX + "() {\n"
+                + "    }\n\n"
+                + "    // 所有系列名，按字典序排列\n"
+                + "    static String[] names() {\n"
+                + "        return NAMES.clone();\n"
+                + "    }\n\n"
+                + "    // 创建名为 name 的系列工厂，未知的名字返回 null\n"
+                + "    static GUIFactory create(String name) {\n"
+                + "        if (name == null) {\n"
+                + "            return null;\n"
+                + "        }\n"
+                + "        switch (name) {\n"
+                + creates
+                + "            default:\n"
+                + "                return null;\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    // 与提交的索引比较；没有提交的索引时生成到编译输出里
+    private void check(String source) {
+        String qualifiedName = packageName + "." + INDEX;
+        TypeElement index = processingEnv.getElementUtils().getTypeElement(qualifiedName);
+        if (index == null) {
+            try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName).openWriter()) {
+                writer.write(source);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成 " + qualifiedName + "：" + e);
+                return;
+            }
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.MANDATORY_WARNING,
+                    "源码目录里没有 " + qualifiedName + "，已生成到编译输出，请把它提交到 src");
+            return;
+        }
+        TreePath path;
+        try {
+            path = Trees.instance(processingEnv).getPath(index);
+        } catch (IllegalArgumentException e) {
+            // 不是 javac，读不到源码
+            path = null;
+        }
+        if (path == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "读不到 " + qualifiedName + " 的源码，跳过检查");
+            return;
+        }
+        try {
+            String current = path.getCompilationUnit().getSourceFile().getCharContent(true).toString()
+                    .replace("\r\n", "\n");
+            if (current.equals(source)) {
+                return;
+            }
+            if (Boolean.parseBoolean(processingEnv.getOptions().get(UPDATE))) {
+                Path file = Path.of(path.getCompilationUnit().getSourceFile().toUri());
+                Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "已按 @GUIFamily 标注更新 " + file + "，请重新编译");
+            } else {
+                error(index, qualifiedName + " 与 @GUIFamily 标注不一致，加上 -A" + UPDATE + "=true 重新生成");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法检查 " + qualifiedName + "：" + e);
+        }
+    }
+
+    // Java 字符串字面量，转义引号、反斜杠和控制字符
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f) {
+                // 八进制转义；Unicode 转义会在词法分析之前被替换，换行等字符放进字面量就编译不过了
+                literal.append(String.format("\\%03o", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,255 @@
+package com.aqire.design.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.Phaser;
+import java.util.function.Supplier;
+
+/**
+ * 简易基准测试工具
+ * <p>
+ * 工程没有构建脚本，引入不了 JMH，这里用多线程 + System.nanoTime 做一个够用的替代：
+ * 预热、定时测量、吞吐量、抽样延迟分位数、每次调用的分配字节数以及监视器阻塞次数。
+ * 结果只适合做同一台机器上的横向对比。op 在某个线程上抛出异常时，这个线程从屏障上注销，其他线程不会卡住，
+ * measure() 等所有线程结束后把这个异常包装成 IllegalStateException 抛给调用方。
+ *
+ * @date 2026/10/16 10:00
+ * --------------------------------------------
+ */
+public final class Bench {
+    // 每隔多少次调用单独计时一次，避免 nanoTime 本身拖慢热点路径
+    private static final int SAMPLE_EVERY = 128;
+    // 所有线程合计最多保留的延迟样本数，每个线程至少保留 MIN_SAMPLES 个
+    private static final int MAX_SAMPLES = 1 << 16;
+    private static final int MIN_SAMPLES = 256;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // 防止 JIT 把结果当作死代码消除
+    private static volatile Object sink;
+
+    static {
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+    }
+
+    private Bench() {
+    }
+
+    // 一次测量的结果
+    public static final class Result {
+        public final String name;
+        public final int threads;
+        public final long ops;
+        public final long nanos;
+        public final long allocatedBytes;
+        public final long blocked;
+        public final long p50;
+        public final long p99;
+        public final long p999;
+
+        Result(String name, int threads, long ops, long nanos, long allocatedBytes, long blocked, long[] samples) {
+            this.name = name;
+            this.threads = threads;
+            this.ops = ops;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.blocked = blocked;
+            Arrays.sort(samples);
+            this.p50 = percentile(samples, 0.50);
+            this.p99 = percentile(samples, 0.99);
+            this.p999 = percentile(samples, 0.999);
+        }
+
+        public double opsPerSecond() {
+            return nanos == 0 ? 0 : ops * 1e9 / nanos;
+        }
+
+        public double bytesPerOp() {
+            return ops == 0 ? 0 : (double) allocatedBytes / ops;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %4d %16.0f %10.2f %8d %8d %8d %10d",
+                    name, threads, opsPerSecond(), bytesPerOp(), p50, p99, p999, blocked);
+        }
+    }
+
+    public static String header() {
+        return String.format("%-28s %4s %16s %10s %8s %8s %8s %10s",
+                "benchmark", "thr", "ops/s", "B/op", "p50 ns", "p99 ns", "p999 ns", "blocked");
+    }
+
+    // 在 threads 个线程上并发调用 op，先预热 warmupMillis，再测量 measureMillis。op 抛出异常时测量失败。
+    public static Result measure(String name, int threads, long warmupMillis, long measureMillis, Supplier<?> op) {
+        Phaser barrier = new Phaser(threads);
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(barrier, warmupMillis, measureMillis, op, Math.max(MIN_SAMPLES, MAX_SAMPLES / threads));
+            workers[i].setName(name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        IllegalStateException failure = null;
+        for (Worker worker : workers) {
+            if (worker.failure == null) {
+                continue;
+            }
+            if (failure == null) {
+                failure = new IllegalStateException("基准测试 " + name + " 失败", worker.failure);
+            } else {
+                failure.addSuppressed(worker.failure);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        long ops = 0, nanos = 0, bytes = 0, blocked = 0;
+        long[][] perThread = new long[threads][];
+        int sampleCount = 0;
+        for (int i = 0; i < threads; i++) {
+            ops += workers[i].ops;
+            nanos = Math.max(nanos, workers[i].nanos);
+            bytes += workers[i].bytes;
+            blocked += workers[i].blocked;
+            perThread[i] = Arrays.copyOf(workers[i].samples, workers[i].sampleCount);
+            sampleCount += workers[i].sampleCount;
+        }
+        long[] samples = new long[sampleCount];
+        int pos = 0;
+        for (long[] s : perThread) {
+            System.arraycopy(s, 0, samples, pos, s.length);
+            pos += s.length;
+        }
+        return new Result(name, threads, ops, nanos, bytes, blocked, samples);
+    }
+
+    // 单线程执行一次 task，返回耗时和分配字节，用于冷启动、批量操作等一次性场景
+    public static Result once(String name, Runnable task) {
+        long id = Thread.currentThread().getId();
+        long bytes0 = allocatedBytes(id);
+        long blocked0 = blockedCount(id);
+        long t0 = System.nanoTime();
+        task.run();
+        long t = System.nanoTime() - t0;
+        return new Result(name, 1, 1, t, allocatedBytes(id) - bytes0, blockedCount(id) - blocked0, new long[]{t});
+    }
+
+    public static void consume(Object o) {
+        sink = o;
+    }
+
+    public static long allocatedBytes(long threadId) {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(threadId);
+        }
+        return 0;
+    }
+
+    // 线程进入竞争监视器而被阻塞的次数，只有监视器膨胀为重量级锁后才会发生
+    public static long blockedCount(long threadId) {
+        ThreadInfo info = THREADS.getThreadInfo(threadId);
+        return info == null ? 0 : info.getBlockedCount();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[i];
+    }
+
+    private static final class Worker extends Thread {
+        private final Phaser barrier;
+        private final long warmupMillis;
+        private final long measureMillis;
+        private final Supplier<?> op;
+        // 延迟样本的蓄水池：装满之后按蓄水池抽样随机替换，样本覆盖整个测量期而不只是开头
+        private final long[] samples;
+        // 每次调用的结果都写进数组，让它逃逸出循环，避免逃逸分析把分配优化掉
+        private final Object[] escaped = new Object[SAMPLE_EVERY];
+        private int sampleCount;
+        private long sampled;
+        private long random = 0x9E3779B97F4A7C15L;
+        private long ops;
+        private long nanos;
+        private long bytes;
+        private long blocked;
+        // op 抛出的异常，measure() 在所有线程结束后检查
+        private volatile Throwable failure;
+
+        Worker(Phaser barrier, long warmupMillis, long measureMillis, Supplier<?> op, int maxSamples) {
+            this.samples = new long[maxSamples];
+            this.barrier = barrier;
+            this.warmupMillis = warmupMillis;
+            this.measureMillis = measureMillis;
+            this.op = op;
+        }
+
+        @Override
+        public void run() {
+            try {
+                barrier.arriveAndAwaitAdvance();
+                loop(warmupMillis, false);
+                barrier.arriveAndAwaitAdvance();
+                long id = getId();
+                long bytes0 = allocatedBytes(id);
+                long blocked0 = blockedCount(id);
+                long t0 = System.nanoTime();
+                ops = loop(measureMillis, true);
+                nanos = System.nanoTime() - t0;
+                bytes = allocatedBytes(id) - bytes0;
+                blocked = blockedCount(id) - blocked0;
+            } catch (Throwable e) {
+                failure = e;
+                // 注销之后其他线程的屏障不再等这个线程
+                barrier.arriveAndDeregister();
+            }
+        }
+
+        private long loop(long millis, boolean record) {
+            long deadline = System.nanoTime() + millis * 1_000_000L;
+            long n = 0;
+            do {
+                for (int i = 0; i < SAMPLE_EVERY - 1; i++) {
+                    escaped[i] = op.get();
+                }
+                long s = System.nanoTime();
+                escaped[SAMPLE_EVERY - 1] = op.get();
+                long e = System.nanoTime();
+                if (record) {
+                    sample(e - s);
+                }
+                n += SAMPLE_EVERY;
+            } while (System.nanoTime() < deadline);
+            consume(escaped[0]);
+            return n;
+        }
+
+        private void sample(long latency) {
+            sampled++;
+            if (sampleCount < samples.length) {
+                samples[sampleCount++] = latency;
+                return;
+            }
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            long slot = (random >>> 1) % sampled;
+            if (slot < samples.length) {
+                samples[(int) slot] = latency;
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.aqire.design.creation.abs;
+
+import com.aqire.design.bench.Bench;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 抽象工厂模式基准测试
+ * <p>
+ * 每次操作用同一个系列工厂构建几千个控件（按钮和复选框各一半），对比直接使用具体工厂和
+ * 使用享元工厂时的吞吐量和分配字节数，并换算成每个控件节省的字节数。
+ * 带有实例状态的产品即使经过享元工厂也要新建，用来确认它们不会被错误地共享。
+ * <p>
+ * 另外测量 paint() 调用点在单态、双态、多态（四种产品）下的开销，以及多态时用
+ * {@link PaintBatch} 按类型分组、再配合专用绘制循环之后能找回多少。
+ * 最后对比逐个调用 createButton()/createCheckbox() 与 Application.createUI(n, parallel)
+ * 批量构建几万个控件的速度，以及冷启动时用生成的 GUIFamilyIndex 和用 ServiceLoader
+ * 扫描类路径找到一个系列的耗时。
+ * <p>
+ * 运行：java com.aqire.design.creation.abs.AbstractFactoryBenchmark [预热毫秒] [测量毫秒]
+ *
+ * @date 2026/10/17 15:30
+ * --------------------------------------------
+ */
+public class AbstractFactoryBenchmark {
+    static final int WIDGETS = 4096;
+    static final int PAINTS = 4096;
+    static final int BULK = 32_768;
+    static final int STARTUP_TRIALS = 20;
+
+    public static void main(String[] args) throws Exception {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        GUIFactory[] families = {new WinFactory(), new MacFactory(), new StatefulFactory()};
+        Bench.Result[][] results = new Bench.Result[families.length][];
+        System.out.println(Bench.header());
+        for (int i = 0; i < families.length; i++) {
+            GUIFactory family = families[i];
+            GUIFactory shared = family.shared();
+            String name = family.getClass().getSimpleName();
+            results[i] = new Bench.Result[]{
+                    Bench.measure("build." + name, 1, warmup, measure, () -> build(family)),
+                    Bench.measure("build." + name + ".shared", 1, warmup, measure, () -> build(shared))
+            };
+            for (Bench.Result result : results[i]) {
+                System.out.println(result);
+            }
+        }
+
+        System.out.println(String.format("%-28s %12s %12s %12s", "family", "B/widget", "shared", "saved"));
+        for (int i = 0; i < families.length; i++) {
+            double fresh = results[i][0].bytesPerOp() / WIDGETS;
+            double shared = results[i][1].bytesPerOp() / WIDGETS;
+            System.out.println(String.format("%-28s %12.2f %12.2f %11.1f%%", families[i].getClass().getSimpleName(),
+                    fresh, shared, fresh == 0 ? 0 : (fresh - shared) * 100 / fresh));
+        }
+
+        dispatch(warmup, measure);
+        bulk(warmup, measure);
+        startup();
+    }
+
+    // 冷启动：每次试验换一个全新的类加载器，测量从第一次调用到拿到 "mac" 系列工厂的耗时
+    static void startup() throws Exception {
+        Path services = Files.createTempDirectory("gui-services");
+        Path file = services.resolve("META-INF/services/" + GUIFactory.class.getName());
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of(ScannedWinFactory.class.getName(), ScannedMacFactory.class.getName()));
+        try {
+            System.out.println(String.format("%-28s %4s %12s %12s", "benchmark", "thr", "median ns", "max ns"));
+            for (String resolver : new String[]{"resolveIndexed", "resolveScanned"}) {
+                long[] elapsed = new long[STARTUP_TRIALS];
+                for (int i = 0; i < STARTUP_TRIALS; i++) {
+                    elapsed[i] = startup(resolver, services);
+                }
+                Arrays.sort(elapsed);
+                System.out.println(String.format("%-28s %4d %12d %12d",
+                        "startup." + resolver, 1, elapsed[STARTUP_TRIALS / 2], elapsed[STARTUP_TRIALS - 1]));
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+            Files.delete(file.getParent().getParent());
+            Files.delete(services);
+        }
+    }
+
+    static long startup(String resolver, Path services) throws Exception {
+        URL location = AbstractFactoryBenchmark.class.getProtectionDomain().getCodeSource().getLocation();
+        URL[] classpath = {location, services.toUri().toURL()};
+        try (URLClassLoader loader = new URLClassLoader(classpath, ClassLoader.getPlatformClassLoader())) {
+            Class<?> type = Class.forName(AbstractFactoryBenchmark.class.getName(), false, loader);
+            Method resolve = type.getDeclaredMethod(resolver, String.class);
+            resolve.setAccessible(true);
+            long t0 = System.nanoTime();
+            Bench.consume(resolve.invoke(null, "mac"));
+            return System.nanoTime() - t0;
+        }
+    }
+
+    // 生成的静态索引：一次 switch 加一次 new
+    static GUIFactory resolveIndexed(String name) {
+        return GUIFamilyIndex.create(name);
+    }
+
+    // 插件式发现：扫描类路径上的 META-INF/services，加载每个提供者类，再读注解找名字匹配的系列
+    static GUIFactory resolveScanned(String name) {
+        return ServiceLoader.load(GUIFactory.class, AbstractFactoryBenchmark.class.getClassLoader()).stream()
+                .filter(provider -> name.equals(familyName(provider.type())))
+                .findFirst()
+                .map(ServiceLoader.Provider::get)
+                .orElse(null);
+    }
+
+    private static String familyName(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            GUIFamily family = c.getAnnotation(GUIFamily.class);
+            if (family != null) {
+                return family.value();
+            }
+        }
+        return null;
+    }
+
+    // 批量构建：逐个创建写入预分配数组、顺序批量、并行批量
+    static void bulk(long warmup, long measure) {
+        GUIFactory factory = new WinFactory();
+        Button[] buttons = new Button[BULK];
+        Checkbox[] checkboxes = new Checkbox[BULK];
+        Application sequential = new Application(factory);
+        Application parallel = new Application(factory);
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("createUI.oneByOne", 1, warmup, measure, () -> {
+            for (int i = 0; i < BULK; i++) {
+                buttons[i] = factory.createButton();
+                checkboxes[i] = factory.createCheckbox();
+            }
+            return buttons;
+        }));
+        System.out.println(Bench.measure("createUI.bulk", 1, warmup, measure,
+                () -> sequential.createUI(BULK, false)));
+        System.out.println(Bench.measure("createUI.bulkParallel", 1, warmup, measure,
+                () -> parallel.createUI(BULK, true)));
+    }
+
+    // paint() 调用点的单态、双态、多态开销。三个循环写成三个方法，各自收集类型信息，互不污染。
+    static void dispatch(long warmup, long measure) {
+        Button[] mono = buttons(1);
+        Button[] bi = buttons(2);
+        Button[] mega = buttons(4);
+        PaintBatch generic = new PaintBatch(false);
+        PaintBatch specialized = new PaintBatch();
+        for (Button button : mega) {
+            generic.add(button);
+            specialized.add(button);
+        }
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("paint.monomorphic", 1, warmup, measure, () -> paintMono(mono)));
+        System.out.println(Bench.measure("paint.bimorphic", 1, warmup, measure, () -> paintBi(bi)));
+        System.out.println(Bench.measure("paint.megamorphic", 1, warmup, measure, () -> paintMega(mega)));
+        System.out.println(Bench.measure("paint.segregated", 1, warmup, measure, () -> {
+            generic.paint();
+            return generic;
+        }));
+        System.out.println(Bench.measure("paint.specialized", 1, warmup, measure, () -> {
+            specialized.paint();
+            return specialized;
+        }));
+    }
+
+    static Button[] paintMono(Button[] buttons) {
+        for (Button button : buttons) {
+            button.paint();
+        }
+        return buttons;
+    }
+
+    static Button[] paintBi(Button[] buttons) {
+        for (Button button : buttons) {
+            button.paint();
+        }
+        return buttons;
+    }
+
+    static Button[] paintMega(Button[] buttons) {
+        for (Button button : buttons) {
+            button.paint();
+        }
+        return buttons;
+    }
+
+    // 交替排列 kinds 种不打印的按钮
+    static Button[] buttons(int kinds) {
+        Button[] buttons = new Button[PAINTS];
+        for (int i = 0; i < PAINTS; i++) {
+            switch (i % kinds) {
+                case 0:
+                    buttons[i] = new CountingButton();
+                    break;
+                case 1:
+                    buttons[i] = new FlatButton();
+                    break;
+                case 2:
+                    buttons[i] = new RoundButton();
+                    break;
+                default:
+                    buttons[i] = new ToggleButton();
+            }
+        }
+        return buttons;
+    }
+
+    // 构建 WIDGETS 个控件，返回数组让它们逃逸
+    static Object[] build(GUIFactory factory) {
+        Object[] widgets = new Object[WIDGETS];
+        for (int i = 0; i < WIDGETS; i += 2) {
+            widgets[i] = factory.createButton();
+            widgets[i + 1] = factory.createCheckbox();
+        }
+        return widgets;
+    }
+
+    // ServiceLoader 要求提供者是带 public 无参构造函数的 public 类，具体工厂是包内可见的，这里包一层
+    public static final class ScannedWinFactory extends WinFactory {
+        public ScannedWinFactory() {
+        }
+    }
+
+    public static final class ScannedMacFactory extends MacFactory {
+        public ScannedMacFactory() {
+        }
+    }
+
+    // 带有实例状态的产品，不能共享
+    static final class CountingButton implements Button {
+        private int painted;
+
+        @Override
+        public void paint() {
+            painted++;
+        }
+    }
+
+    static final class FlatButton implements Button {
+        private int painted;
+
+        @Override
+        public void paint() {
+            painted += 1;
+        }
+    }
+
+    static final class RoundButton implements Button {
+        private int painted;
+
+        @Override
+        public void paint() {
+            painted += 2;
+        }
+    }
+
+    static final class ToggleButton implements Button {
+        private boolean on;
+
+        @Override
+        public void paint() {
+            on = !on;
+        }
+    }
+
+    static final class CountingCheckbox implements Checkbox {
+        private int painted;
+
+        @Override
+        public void paint() {
+            painted++;
+        }
+    }
+
+    static final class StatefulFactory implements GUIFactory {
+        @Override
+        public Button createButton() {
+            return new CountingButton();
+        }
+
+        @Override
+        public Checkbox createCheckbox() {
+            return new CountingCheckbox();
+        }
+    }
+}
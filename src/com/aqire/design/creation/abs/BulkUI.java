@@ -0,0 +1,77 @@
+package com.aqire.design.creation.abs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量构建控件
+ * <p>
+ * 用同一个系列工厂把预先分配好的按钮、复选框数组填满。所有任务共用调用方传入的那一个工厂，
+ * 所以无论是否并行，结果都属于同一个系列。数量超过阈值时拆分到 fork-join 线程池并行填充，
+ * 各任务只写自己负责的下标区间，互不干扰；低于阈值或线程池只有一个线程时顺序执行。
+ *
+ * @date 2026/10/17 17:00
+ * --------------------------------------------
+ */
+class BulkUI {
+    static final int DEFAULT_THRESHOLD = 4096;
+
+    private BulkUI() {
+    }
+
+    // 填充 buttons[0, count) 和 checkboxes[0, count)
+    public static void fill(GUIFactory factory, Button[] buttons, Checkbox[] checkboxes, int count,
+                            boolean parallel) {
+        fill(factory, buttons, checkboxes, count, parallel ? DEFAULT_THRESHOLD : Integer.MAX_VALUE);
+    }
+
+    public static void fill(GUIFactory factory, Button[] buttons, Checkbox[] checkboxes, int count, int threshold) {
+        if (count < 0 || buttons.length < count || checkboxes.length < count) {
+            throw new IllegalArgumentException("数组容量不足：" + count);
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("阈值必须大于 0：" + threshold);
+        }
+        if (count <= threshold || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            fillRange(factory, buttons, checkboxes, 0, count);
+        } else {
+            ForkJoinPool.commonPool().invoke(new FillTask(factory, buttons, checkboxes, 0, count, threshold));
+        }
+    }
+
+    private static void fillRange(GUIFactory factory, Button[] buttons, Checkbox[] checkboxes, int from, int to) {
+        factory.createButtons(buttons, from, to);
+        factory.createCheckboxes(checkboxes, from, to);
+    }
+
+    private static final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GUIFactory factory;
+        private final Button[] buttons;
+        private final Checkbox[] checkboxes;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        FillTask(GUIFactory factory, Button[] buttons, Checkbox[] checkboxes, int from, int to, int threshold) {
+            this.factory = factory;
+            this.buttons = buttons;
+            this.checkboxes = checkboxes;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                fillRange(factory, buttons, checkboxes, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FillTask(factory, buttons, checkboxes, from, middle, threshold),
+                    new FillTask(factory, buttons, checkboxes, middle, to, threshold));
+        }
+    }
+}
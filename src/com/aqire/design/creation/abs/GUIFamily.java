@@ -0,0 +1,28 @@
+package com.aqire.design.creation.abs;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 系列声明
+ * <p>
+ * 标在具体工厂上，声明它在配置里的名字和它生产的具体产品。processor 源码目录里的 GUIFamilyProcessor
+ * 收集所有标注过的工厂，生成静态索引 GUIFamilyIndex（已提交在源码里），启动时按名字查找系列不需要扫描类路径，
+ * 也不需要反射。新增或修改系列后用处理器重新生成索引，见 README。
+ * 标注的类必须实现 {@link GUIFactory} 并且有非 private 的无参构造函数。保留到运行期只是为了和按 ServiceLoader 发现的方式做对比。
+ *
+ * @date 2026/10/17 18:00
+ * --------------------------------------------
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@interface GUIFamily {
+    // 配置里使用的系列名，例如 "window"
+    String value();
+
+    Class<? extends Button> button();
+
+    Class<? extends Checkbox> checkbox();
+}
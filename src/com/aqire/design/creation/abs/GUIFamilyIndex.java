@@ -0,0 +1,34 @@
+package com.aqire.design.creation.abs;
+
+/**
+ * 系列索引
+ * <p>
+ * 由 GUIFamilyProcessor 根据 @GUIFamily 标注生成，不要手工修改。
+ * --------------------------------------------
+ */
+final class GUIFamilyIndex {
+    private static final String[] NAMES = {"mac", "window"};
+
+    private GUIFamilyIndex() {
+    }
+
+    // 所有系列名，按字典序排列
+    static String[] names() {
+        return NAMES.clone();
+    }
+
+    // 创建名为 name 的系列工厂，未知的名字返回 null
+    static GUIFactory create(String name) {
+        if (name == null) {
+            return null;
+        }
+        switch (name) {
+            case "mac":
+                return new com.aqire.design.creation.abs.MacFactory();
+            case "window":
+                return new com.aqire.design.creation.abs.WinFactory();
+            default:
+                return null;
+        }
+    }
+}
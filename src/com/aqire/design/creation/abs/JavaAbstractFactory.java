@@ -1,5 +1,7 @@
 package com.aqire.design.creation.abs;
 
+import java.util.Arrays;
+
 /**
  * 抽象工厂模式
  *
@@ -8,13 +10,17 @@ package com.aqire.design.creation.abs;
  * --------------------------------------------
  */
 
+// 标记无状态的产品。这样的产品可以在同一系列内共享一个实例，见 SharedGUIFactory。
+interface Shareable {
+}
+
 // 系列产品中的特定产品必须有一个基础接口。所有产品变体都必须实现这个接口。
 interface Button {
     void paint();
 }
 
 // 具体产品由相应的具体工厂创建。
-class WinButton implements Button {
+class WinButton implements Button, Shareable {
     // 根据 Windows 样式渲染按钮。
     @Override
     public void paint() {
@@ -22,7 +28,7 @@ class WinButton implements Button {
     }
 }
 
-class MacButton implements Button {
+class MacButton implements Button, Shareable {
     // 根据 macOS 样式渲染按钮
     @Override
     public void paint() {
@@ -38,14 +44,14 @@ interface Checkbox {
 }
 
 
-class WinCheckbox implements Checkbox {
+class WinCheckbox implements Checkbox, Shareable {
     @Override
     public void paint() {
         System.out.println("Window Checkbox is rendered.");
     }
 }
 
-class MacCheckbox implements Checkbox {
+class MacCheckbox implements Checkbox, Shareable {
     @Override
     public void paint() {
         System.out.println("Mac Checkbox is rendered.");
@@ -59,11 +65,31 @@ interface GUIFactory {
     Button createButton();
 
     Checkbox createCheckbox();
+
+    // 批量创建：把 buttons[from, to) 填满本系列的按钮。具体工厂有更快的批量创建方式时可以覆盖。
+    default void createButtons(Button[] buttons, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buttons[i] = createButton();
+        }
+    }
+
+    default void createCheckboxes(Checkbox[] checkboxes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            checkboxes[i] = createCheckbox();
+        }
+    }
+
+    // 享元模式：返回包装本工厂的享元工厂，无状态的产品只创建一次并共享，有状态的产品仍然新建。
+    // 每次调用都返回新的享元工厂，调用方应持有并复用它。
+    default GUIFactory shared() {
+        return SharedGUIFactory.of(this);
+    }
 }
 
 // 具体工厂可生成属于同一变体的系列产品。工厂会确保其创建的产品能相互搭配
 // 使用。具体工厂方法签名会返回一个抽象产品，但在方法内部则会对具体产品进
 // 行实例化。
+@GUIFamily(value = "window", button = WinButton.class, checkbox = WinCheckbox.class)
 class WinFactory implements GUIFactory {
 
     @Override
@@ -79,6 +105,7 @@ class WinFactory implements GUIFactory {
 
 
 // 每个具体工厂中都会包含一个相应的产品变体。
+@GUIFamily(value = "mac", button = MacButton.class, checkbox = MacCheckbox.class)
 class MacFactory implements GUIFactory {
 
     @Override
@@ -97,6 +124,10 @@ class MacFactory implements GUIFactory {
 class Application {
     private GUIFactory factory;
     private Button button;
+    // 批量构建的控件，数组在多次构建之间复用
+    private Button[] buttons = new Button[0];
+    private Checkbox[] checkboxes = new Checkbox[0];
+    private int count;
 
     public Application(GUIFactory factory) {
         this.factory = factory;
@@ -107,21 +138,63 @@ class Application {
         return this;
     }
 
+    // 一次构建 count 个按钮和 count 个复选框，全部来自同一个工厂；parallel 为 true 时数量够多就并行填充
+    public Application createUI(int count, boolean parallel) {
+        if (count < 0) {
+            throw new IllegalArgumentException("控件数量不能为负数：" + count);
+        }
+        if (buttons.length < count) {
+            buttons = new Button[count];
+            checkboxes = new Checkbox[count];
+        } else if (count < this.count) {
+            // 清掉上一次多出来的控件，避免它们被一直引用
+            Arrays.fill(buttons, count, this.count, null);
+            Arrays.fill(checkboxes, count, this.count, null);
+        }
+        BulkUI.fill(factory, buttons, checkboxes, count, parallel);
+        this.count = count;
+        this.button = count > 0 ? buttons[0] : null;
+        return this;
+    }
+
+    public int widgetCount() {
+        return count;
+    }
+
+    public Button button(int index) {
+        return buttons[check(index)];
+    }
+
+    public Checkbox checkbox(int index) {
+        return checkboxes[check(index)];
+    }
+
     public void paint() {
         this.button.paint();
     }
+
+    // 绘制批量构建的全部控件
+    public void paintAll() {
+        for (int i = 0; i < count; i++) {
+            buttons[i].paint();
+            checkboxes[i].paint();
+        }
+    }
+
+    private int check(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+        return index;
+    }
 }
 
 // 程序会根据当前配置或环境设定选择工厂类型，并在运行时创建工厂（通常在初
-// 始化阶段）。
+// 始化阶段）。系列由生成的 GUIFamilyIndex 查找，新增系列标注 @GUIFamily 后重新生成索引。
 class ApplicationConfigurator {
     public void main(String os) throws Exception {
-        GUIFactory factory;
-        if ("window".equals(os)) {
-            factory = new WinFactory();
-        } else if ("mac".equals(os)) {
-            factory = new MacFactory();
-        } else {
+        GUIFactory factory = GUIFamilyIndex.create(os);
+        if (factory == null) {
             throw new Exception("错误！未知的操作系统。");
         }
         new Application(factory).createUI().paint();
@@ -133,6 +206,17 @@ public class JavaAbstractFactory {
     public static void main(String[] args) {
         try {
             new ApplicationConfigurator().main("window");
+
+            // 享元：无状态的产品在系列内共享同一个实例
+            GUIFactory shared = new MacFactory().shared();
+            System.out.println("共享按钮：" + (shared.createButton() == shared.createButton()));
+            new Application(shared).createUI().paint();
+
+            // 按类型分组绘制：每种产品使用自己的专用绘制循环
+            new PaintBatch().addAll(new WinFactory(), 1).addAll(new MacFactory(), 1).paint();
+
+            // 批量构建：一次创建一批同系列的控件
+            new Application(new MacFactory()).createUI(2, true).paintAll();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,127 @@
+package com.aqire.design.creation.abs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按类型分组的绘制批次
+ * <p>
+ * 把混在一起的、来自不同系列的控件按具体产品类分组保存，paint() 时逐组调用该类专用的
+ * 绘制循环（见 {@link PaintLoops}），每组内部都是单态调用，paint() 可以被内联。
+ * 组内保持加入的先后顺序，组与组之间按第一次出现的顺序绘制。
+ * 不是线程安全的，一个批次只由一个线程构建和绘制。
+ *
+ * @date 2026/10/17 16:00
+ * --------------------------------------------
+ */
+class PaintBatch {
+    private final boolean specialized;
+    private final Map<Class<?>, Group> index = new IdentityHashMap<>();
+    private final List<Group> groups = new ArrayList<>();
+    private int size;
+
+    // 每组使用专用的绘制循环
+    PaintBatch() {
+        this(true);
+    }
+
+    // specialized 为 false 时所有组共用同一个循环，只分组不专用，用于对比
+    PaintBatch(boolean specialized) {
+        this.specialized = specialized;
+    }
+
+    public PaintBatch add(Button button) {
+        group(button.getClass()).addButton(button);
+        size++;
+        return this;
+    }
+
+    public PaintBatch add(Checkbox checkbox) {
+        group(checkbox.getClass()).addCheckbox(checkbox);
+        size++;
+        return this;
+    }
+
+    // 把一个应用的全部控件加入批次
+    public PaintBatch addAll(GUIFactory factory, int count) {
+        for (int i = 0; i < count; i++) {
+            add(factory.createButton());
+            add(factory.createCheckbox());
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void paint() {
+        for (Group group : groups) {
+            group.paint();
+        }
+    }
+
+    // 清空控件，保留分组和数组，下次构建时不再分配
+    public void clear() {
+        for (Group group : groups) {
+            group.clear();
+        }
+        size = 0;
+    }
+
+    private Group group(Class<?> type) {
+        Group group = index.get(type);
+        if (group == null) {
+            group = new Group(specialized ? PaintLoops.specialized(type) : PaintLoops.shared());
+            index.put(type, group);
+            groups.add(group);
+        }
+        return group;
+    }
+
+    // 同一个具体类的控件。一个类要么是按钮要么是复选框，通常只会用到其中一个数组。
+    private static final class Group {
+        private final PaintLoops.Painter painter;
+        private Button[] buttons = new Button[0];
+        private Checkbox[] checkboxes = new Checkbox[0];
+        private int buttonCount;
+        private int checkboxCount;
+
+        Group(PaintLoops.Painter painter) {
+            this.painter = painter;
+        }
+
+        void addButton(Button button) {
+            if (buttonCount == buttons.length) {
+                buttons = Arrays.copyOf(buttons, Math.max(16, buttonCount * 2));
+            }
+            buttons[buttonCount++] = button;
+        }
+
+        void addCheckbox(Checkbox checkbox) {
+            if (checkboxCount == checkboxes.length) {
+                checkboxes = Arrays.copyOf(checkboxes, Math.max(16, checkboxCount * 2));
+            }
+            checkboxes[checkboxCount++] = checkbox;
+        }
+
+        void paint() {
+            if (buttonCount > 0) {
+                painter.paintButtons(buttons, 0, buttonCount);
+            }
+            if (checkboxCount > 0) {
+                painter.paintCheckboxes(checkboxes, 0, checkboxCount);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(buttons, 0, buttonCount, null);
+            Arrays.fill(checkboxes, 0, checkboxCount, null);
+            buttonCount = 0;
+            checkboxCount = 0;
+        }
+    }
+}
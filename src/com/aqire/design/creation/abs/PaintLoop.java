@@ -0,0 +1,29 @@
+package com.aqire.design.creation.abs;
+
+/**
+ * 绘制循环
+ * <p>
+ * 逐个调用产品的 paint()。循环里的 paint() 调用点只有一个，JIT 按这一个调用点收集类型信息：
+ * 见过的产品类型超过两种之后就不再内联。{@link PaintLoops} 会为每个具体产品类
+ * 把这个类的字节码重新定义成一个隐藏类，每个副本都有自己的调用点，始终只见到一种类型。
+ * 这个类会被整体复制，所以不要引用它自己的静态状态。
+ *
+ * @date 2026/10/17 16:00
+ * --------------------------------------------
+ */
+class PaintLoop implements PaintLoops.Painter {
+
+    @Override
+    public void paintButtons(Button[] buttons, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buttons[i].paint();
+        }
+    }
+
+    @Override
+    public void paintCheckboxes(Checkbox[] checkboxes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            checkboxes[i].paint();
+        }
+    }
+}
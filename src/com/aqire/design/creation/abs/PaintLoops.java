@@ -0,0 +1,68 @@
+package com.aqire.design.creation.abs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 按产品类型专用的绘制循环
+ * <p>
+ * 系列越来越多之后，Application 里 paint() 的调用点会见到很多种产品，变成多态（megamorphic）
+ * 调用，JIT 只能走虚表、不能内联。这里为每个具体产品类生成一份 {@link PaintLoop} 的副本
+ * （同一份字节码定义成不同的隐藏类），让每种产品都有自己的单态调用点。
+ * 字节码读不到时（例如类文件被打包工具改写）退回到共用的循环，行为不变，只是不再专用。
+ *
+ * @date 2026/10/17 16:00
+ * --------------------------------------------
+ */
+final class PaintLoops {
+    private static final Painter SHARED = new PaintLoop();
+    private static final byte[] LOOP_BYTES = loopBytes();
+
+    private static final ClassValue<Painter> SPECIALIZED = new ClassValue<Painter>() {
+        @Override
+        protected Painter computeValue(Class<?> productType) {
+            return LOOP_BYTES == null ? SHARED : define();
+        }
+    };
+
+    private PaintLoops() {
+    }
+
+    // 绘制一段连续的同类产品
+    interface Painter {
+        void paintButtons(Button[] buttons, int from, int to);
+
+        void paintCheckboxes(Checkbox[] checkboxes, int from, int to);
+    }
+
+    // 所有产品共用的循环
+    static Painter shared() {
+        return SHARED;
+    }
+
+    // productType 专用的循环，同一个类总是返回同一个副本
+    static Painter specialized(Class<?> productType) {
+        return SPECIALIZED.get(productType);
+    }
+
+    private static Painter define() {
+        try {
+            MethodHandles.Lookup loop = MethodHandles.lookup().defineHiddenClass(LOOP_BYTES, true);
+            return (Painter) loop.findConstructor(loop.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("无法生成专用的绘制循环", e);
+        }
+    }
+
+    private static byte[] loopBytes() {
+        try (InputStream in = PaintLoop.class.getResourceAsStream("PaintLoop.class")) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.aqire.design.creation.abs;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 享元系列工厂
+ * <p>
+ * 包装一个具体工厂，让同一系列里声明为 {@link Shareable} 的产品只创建一次，之后每次
+ * createXxx() 都返回这个规范实例；没有声明的产品带有实例状态，仍然每次新建。
+ * 是否可共享由工厂第一次创建出的产品决定，之后不再检查。
+ * 每次 {@link #of} 都返回一个新的享元工厂，规范实例属于这个享元工厂，由调用方持有和复用；
+ * 同一个类的不同工厂实例可能配置不同，不会共用规范实例，享元工厂不再使用后随之回收。
+ *
+ * @date 2026/10/17 15:00
+ * --------------------------------------------
+ */
+final class SharedGUIFactory implements GUIFactory {
+    private final GUIFactory family;
+    private final Product<Button> buttons;
+    private final Product<Checkbox> checkboxes;
+
+    private SharedGUIFactory(GUIFactory family) {
+        this.family = family;
+        this.buttons = new Product<>(family::createButton);
+        this.checkboxes = new Product<>(family::createCheckbox);
+    }
+
+    // 返回包装 family 的新享元工厂
+    static GUIFactory of(GUIFactory family) {
+        if (family instanceof SharedGUIFactory) {
+            return family;
+        }
+        return new SharedGUIFactory(family);
+    }
+
+    @Override
+    public Button createButton() {
+        return buttons.get();
+    }
+
+    @Override
+    public Checkbox createCheckbox() {
+        return checkboxes.get();
+    }
+
+    // 可共享的产品直接用规范实例填满区间，否则交给具体工厂批量创建
+    @Override
+    public void createButtons(Button[] buttons, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        buttons[from] = createButton();
+        if (sharesButtons()) {
+            Arrays.fill(buttons, from + 1, to, buttons[from]);
+        } else {
+            family.createButtons(buttons, from + 1, to);
+        }
+    }
+
+    @Override
+    public void createCheckboxes(Checkbox[] checkboxes, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        checkboxes[from] = createCheckbox();
+        if (sharesCheckboxes()) {
+            Arrays.fill(checkboxes, from + 1, to, checkboxes[from]);
+        } else {
+            family.createCheckboxes(checkboxes, from + 1, to);
+        }
+    }
+
+    // 被包装的具体工厂
+    GUIFactory family() {
+        return family;
+    }
+
+    // 某种产品目前是否在共享规范实例，还没创建过时返回 false
+    boolean sharesButtons() {
+        return buttons.canonical instanceof Shareable;
+    }
+
+    boolean sharesCheckboxes() {
+        return checkboxes.canonical instanceof Shareable;
+    }
+
+    // 一种产品的共享状态：canonical 为 null 表示还没创建过，FRESH 表示不可共享，否则就是规范实例
+    private static final class Product<T> {
+        private static final Object FRESH = new Object();
+
+        private final Supplier<T> create;
+        private volatile Object canonical;
+
+        Product(Supplier<T> create) {
+            this.create = create;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get() {
+            Object product = canonical;
+            if (product == FRESH) {
+                return create.get();
+            }
+            if (product != null) {
+                return (T) product;
+            }
+            synchronized (this) {
+                product = canonical;
+                if (product == null) {
+                    T created = create.get();
+                    canonical = created instanceof Shareable ? created : FRESH;
+                    return created;
+                }
+            }
+            return product == FRESH ? create.get() : (T) product;
+        }
+    }
+}
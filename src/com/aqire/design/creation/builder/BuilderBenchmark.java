@@ -0,0 +1,330 @@
+package com.aqire.design.creation.builder;
+
+import com.aqire.design.bench.Bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 建造者模式基准测试
+ * <p>
+ * 为一个车队生成使用手册，对比 Manual.print() 的字符串拼接与 ManualWriter 流式写入
+ * StringBuilder、直接内存 ByteBuffer 以及批量写入时每本手册的耗时和分配字节数；
+ * 以及每次新建生成器、复用线程内的生成器、建造不可变汽车时每秒的建造次数和分配字节数；
+ * 对比按对象和按列（FleetStore，顺序和并行）建造一百万辆车的耗时、分配字节数和 GC 次数；
+ * 最后是 1 到 64 个遥测线程同时向一台发动机上报里程时，加锁的普通 Engine 与 ConcurrentEngine
+ * 的吞吐量、ConcurrentEngine 接上遥测存储之后的吞吐量，以及不加锁时普通 Engine 丢失的里程；
+ * 遥测存储（堆内和溢出到映射文件）每个样本的字节数、写入耗时，以及范围查询和降采样的延迟。
+ * <p>
+ * 运行：java com.aqire.design.creation.builder.BuilderBenchmark [预热毫秒] [测量毫秒]
+ *
+ * @date 2026/10/17 19:00
+ * --------------------------------------------
+ */
+public class BuilderBenchmark {
+    static final int FLEET = 1000;
+    static final int[] THREADS = {1, 4};
+    static final int CARS = 1_000_000;
+    static final int FLEET_ROUNDS = 3;
+    static final int[] REPORTERS = {1, 2, 4, 8, 16, 32, 64};
+    static final int REPORTS = 100_000;
+    static final int TRACKED_ENGINES = 10_000;
+    static final int TRACKED_REPORTS = 2048;
+    // 每台发动机大约每秒上报一次
+    static final long REPORT_MILLIS = 1000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        manuals(warmup, measure);
+        builders(warmup, measure);
+        fleetStore();
+        engines(warmup, measure);
+        telemetry(warmup, measure);
+    }
+
+    // 遥测：TRACKED_ENGINES 台发动机各上报 TRACKED_REPORTS 次，封存的块分别留在堆上和溢出到映射文件
+    static void telemetry(long warmup, long measure) throws IOException {
+        Path spill = Files.createTempDirectory("engine-telemetry");
+        try {
+            System.out.println(String.format("%-28s %12s %12s %12s", "telemetry", "ns/sample", "B/sample", "blocks"));
+            try (EngineTelemetry heap = ingest("telemetry.heap", null);
+                 EngineTelemetry mapped = ingest("telemetry.mapped", spill)) {
+                System.out.println(Bench.header());
+                for (EngineTelemetry telemetry : new EngineTelemetry[]{heap, mapped}) {
+                    String name = telemetry == heap ? "telemetry.heap" : "telemetry.mapped";
+                    Random random = new Random(1);
+                    long end = TRACKED_REPORTS * REPORT_MILLIS;
+                    double[] sum = new double[1];
+                    System.out.println(Bench.measure(name + ".range1h", 1, warmup, measure, () -> {
+                        EngineTelemetry.Series series = telemetry.series(random.nextInt(TRACKED_ENGINES));
+                        long from = (long) (random.nextDouble() * (end - 3_600_000));
+                        series.query(from, from + 3_600_000, (time, value) -> sum[0] += value);
+                        return sum;
+                    }));
+                    System.out.println(Bench.measure(name + ".downsample1m", 1, warmup, measure,
+                            () -> telemetry.series(random.nextInt(TRACKED_ENGINES)).downsample(0, end, 60_000)));
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(spill)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(spill);
+        }
+    }
+
+    // 通过 Engine.go() 写入，时钟由这里按上报轮次推进，每台发动机有几毫秒的抖动
+    static EngineTelemetry ingest(String name, Path spill) {
+        long[] now = new long[1];
+        EngineTelemetry telemetry = new EngineTelemetry(EngineTelemetry.DEFAULT_BLOCK_SAMPLES, () -> now[0], spill);
+        Engine[] engines = new Engine[TRACKED_ENGINES];
+        double[] speeds = new double[TRACKED_ENGINES];
+        Random random = new Random(42);
+        for (int i = 0; i < TRACKED_ENGINES; i++) {
+            engines[i] = new Engine(2.5, 0);
+            engines[i].attach(telemetry);
+            engines[i].on();
+            speeds[i] = 10 + random.nextInt(20);
+        }
+        long t0 = System.nanoTime();
+        for (int report = 0; report < TRACKED_REPORTS; report++) {
+            for (int i = 0; i < TRACKED_ENGINES; i++) {
+                now[0] = report * REPORT_MILLIS + (i & 7);
+                // 车速缓慢变化，每秒里程取 0.1 米精度
+                if (random.nextInt(8) == 0) {
+                    speeds[i] = Math.max(0, speeds[i] + random.nextInt(3) - 1);
+                }
+                engines[i].go(Math.round(speeds[i] * 10) / 10_000.0);
+            }
+        }
+        telemetry.flush();
+        long nanos = System.nanoTime() - t0;
+        long samples = telemetry.sampleCount();
+        long blocks = 0;
+        for (int i = 0; i < TRACKED_ENGINES; i++) {
+            blocks += telemetry.series(i).sealedBlocks();
+        }
+        System.out.println(String.format("%-28s %12.2f %12.2f %12d",
+                name, (double) nanos / samples, telemetry.bytesPerSample(), blocks));
+        return telemetry;
+    }
+
+    // 多个线程向同一台发动机上报里程
+    static void engines(long warmup, long measure) throws IOException, InterruptedException {
+        System.out.println(Bench.header());
+        for (int threads : REPORTERS) {
+            Engine locked = new Engine(2.5, 0);
+            locked.on();
+            System.out.println(Bench.measure("engine.synchronized", threads, warmup, measure, () -> {
+                synchronized (locked) {
+                    locked.go(1);
+                }
+                return locked;
+            }));
+            ConcurrentEngine striped = Engine.concurrent(2.5, 0);
+            striped.on();
+            System.out.println(Bench.measure("engine.concurrent", threads, warmup, measure, () -> {
+                striped.go(1);
+                return striped;
+            }));
+            // 每次 go() 还要把样本交给遥测存储，编码由它的后台线程完成
+            try (EngineTelemetry telemetry = new EngineTelemetry()) {
+                ConcurrentEngine attached = Engine.concurrent(2.5, 0);
+                attached.attach(telemetry);
+                attached.on();
+                System.out.println(Bench.measure("engine.concurrent.attached", threads, warmup, measure, () -> {
+                    attached.go(1);
+                    return attached;
+                }));
+            }
+        }
+
+        // 每个线程上报 REPORTS 次 1 公里，比较最终里程
+        System.out.println(String.format("%-28s %4s %16s %16s", "lost updates", "thr", "expected", "mileage"));
+        for (int threads : new int[]{8, 64}) {
+            for (Engine engine : new Engine[]{new Engine(2.5, 0), Engine.concurrent(2.5, 0)}) {
+                engine.on();
+                Thread[] reporters = new Thread[threads];
+                for (int i = 0; i < threads; i++) {
+                    reporters[i] = new Thread(() -> {
+                        for (int n = 0; n < REPORTS; n++) {
+                            engine.go(1);
+                        }
+                    });
+                    reporters[i].start();
+                }
+                for (Thread reporter : reporters) {
+                    reporter.join();
+                }
+                System.out.println(String.format("%-28s %4d %16d %16.0f",
+                        engine.getClass().getSimpleName(), threads, (long) threads * REPORTS, engine.getMileage()));
+            }
+        }
+    }
+
+    // 一百万辆车：List<Car>、顺序列式填充、并行列式填充。每种重复几轮，打印最后一轮。
+    static void fleetStore() {
+        Director director = new Director();
+        ObjIntConsumer<Builder> recipe = (builder, row) -> {
+            switch (row % 3) {
+                case 0:
+                    director.constructSportsCar(builder);
+                    break;
+                case 1:
+                    director.constructCityCar(builder);
+                    break;
+                default:
+                    director.constructSUV(builder);
+            }
+        };
+        System.out.println(String.format("%-28s %12s %12s %8s", "benchmark", "ns/car", "B/car", "gc"));
+        String[] names = {"fleet.objects", "fleet.columns", "fleet.columnsParallel"};
+        for (String name : names) {
+            Bench.Result result = null;
+            long gc = 0;
+            for (int round = 0; round < FLEET_ROUNDS; round++) {
+                long gc0 = gcCount();
+                result = Bench.once(name, () -> Bench.consume(buildFleet(name, recipe)));
+                gc = gcCount() - gc0;
+            }
+            System.out.println(String.format("%-28s %12.2f %12.2f %8d",
+                    name, (double) result.nanos / CARS, (double) result.allocatedBytes / CARS, gc));
+        }
+    }
+
+    static Object buildFleet(String name, ObjIntConsumer<Builder> recipe) {
+        switch (name) {
+            case "fleet.objects":
+                List<Car> cars = new ArrayList<>(CARS);
+                for (int row = 0; row < CARS; row++) {
+                    CarBuilder builder = CarBuilder.forThread();
+                    recipe.accept(builder, row);
+                    cars.add(builder.build());
+                }
+                return cars;
+            case "fleet.columns":
+                return FleetStore.fill(CARS, recipe, Integer.MAX_VALUE);
+            default:
+                return FleetStore.fill(CARS, recipe);
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    // 建造：每次新建生成器（原来的用法）、复用线程内的生成器、复用生成器建造不可变汽车
+    static void builders(long warmup, long measure) {
+        Director director = new Director();
+        System.out.println(Bench.header());
+        for (int threads : THREADS) {
+            System.out.println(Bench.measure("build.newBuilder", threads, warmup, measure, () -> {
+                CarBuilder builder = new CarBuilder();
+                director.constructSportsCar(builder);
+                return builder.build();
+            }));
+            System.out.println(Bench.measure("build.reused", threads, warmup, measure, () -> {
+                CarBuilder builder = CarBuilder.forThread();
+                director.constructSportsCar(builder);
+                return builder.build();
+            }));
+            System.out.println(Bench.measure("build.reusedImmutable", threads, warmup, measure, () -> {
+                CarBuilder builder = CarBuilder.forThread();
+                director.constructSportsCar(builder);
+                return builder.buildImmutable();
+            }));
+        }
+    }
+
+    // 每次操作输出整个车队的手册，结果按本数换算
+    static void manuals(long warmup, long measure) {
+        List<Manual> fleet = fleet();
+        ManualWriter writer = new ManualWriter();
+        StringBuilder text = new StringBuilder(FLEET * ManualWriter.MAX_MANUAL_BYTES);
+        ByteBuffer direct = ByteBuffer.allocateDirect(FLEET * ManualWriter.MAX_MANUAL_BYTES);
+
+        Bench.Result[] results = {
+                Bench.measure("manual.print", 1, warmup, measure, () -> {
+                    int length = 0;
+                    for (Manual manual : fleet) {
+                        length += manual.print().length();
+                    }
+                    return length;
+                }),
+                Bench.measure("manual.appendable", 1, warmup, measure, () -> {
+                    text.setLength(0);
+                    try {
+                        for (Manual manual : fleet) {
+                            writer.write(manual, text);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return text;
+                }),
+                Bench.measure("manual.byteBuffer", 1, warmup, measure, () -> {
+                    direct.clear();
+                    for (Manual manual : fleet) {
+                        writer.write(manual, direct);
+                    }
+                    return direct;
+                }),
+                Bench.measure("manual.bulk", 1, warmup, measure, () -> {
+                    direct.clear();
+                    writer.writeAll(fleet, 0, direct);
+                    return direct;
+                })
+        };
+        System.out.println(Bench.header());
+        for (Bench.Result result : results) {
+            System.out.println(result);
+        }
+        System.out.println(String.format("%-28s %16s %12s", "benchmark", "manuals/s", "B/manual"));
+        for (Bench.Result result : results) {
+            System.out.println(String.format("%-28s %16.0f %12.2f",
+                    result.name, result.opsPerSecond() * FLEET, result.bytesPerOp() / FLEET));
+        }
+    }
+
+    // 配置和里程各不相同的车队手册
+    static List<Manual> fleet() {
+        Director director = new Director();
+        List<Manual> fleet = new ArrayList<>(FLEET);
+        for (int i = 0; i < FLEET; i++) {
+            CarManualBuilder builder = new CarManualBuilder();
+            switch (i % 3) {
+                case 0:
+                    director.constructSportsCar(builder);
+                    break;
+                case 1:
+                    director.constructCityCar(builder);
+                    break;
+                default:
+                    director.constructSUV(builder);
+            }
+            Manual manual = builder.build();
+            manual.getEngine().on();
+            manual.getEngine().go(i * 12.5 + i % 7 * 0.1);
+            fleet.add(manual);
+        }
+        return fleet;
+    }
+}
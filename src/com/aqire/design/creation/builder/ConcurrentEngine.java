@@ -0,0 +1,104 @@
+package com.aqire.design.creation.builder;
+
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * 并发发动机
+ * <p>
+ * 普通发动机的里程是普通 double，启动状态也不是 volatile，多个遥测线程同时 go() 会丢失更新，
+ * 加锁又会让所有线程排队。这里把里程交给 DoubleAdder 分散累加：竞争时每个线程落在不同的单元上，
+ * 互不干扰，读取时再求和。启动状态是 volatile，on()/off() 之后其他线程立刻可见。
+ * <p>
+ * {@link #snapshot()} 返回启动状态、里程和启停次数：读取里程前后启停次数不变才返回，
+ * 所以快照里的启动状态和启停次数是对应的，里程是读取期间某一时刻的累计值。
+ * 它不是与 go() 严格一致的快照：go() 先检查启动状态再累加，与 off() 同时进行的 go() 仍可能被计入，
+ * off() 返回后才开始的 go() 一定不会被计入。只有正数里程时，先后两个快照的里程不会变小。
+ *
+ * @date 2026/10/17 21:00
+ * --------------------------------------------
+ */
+class ConcurrentEngine extends Engine {
+    // 里程和启动状态放在这里，覆盖 Engine 的状态访问方法；排量不变，仍由 Engine 保存
+    private final DoubleAdder mileage = new DoubleAdder();
+    private volatile boolean started;
+    // 每次 on()/off() 改变状态时加一，用来校验快照
+    private volatile long switches;
+
+    public ConcurrentEngine(double volume, double mileage) {
+        super(volume, 0);
+        this.mileage.add(mileage);
+    }
+
+    @Override
+    public synchronized void on() {
+        if (!started) {
+            started = true;
+            switches++;
+        }
+    }
+
+    @Override
+    public synchronized void off() {
+        if (started) {
+            started = false;
+            switches++;
+        }
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public double getMileage() {
+        return mileage.sum();
+    }
+
+    @Override
+    void addMileage(double mileage) {
+        this.mileage.add(mileage);
+    }
+
+    public Snapshot snapshot() {
+        for (; ; ) {
+            long before = switches;
+            boolean started = this.started;
+            double mileage = this.mileage.sum();
+            if (switches == before) {
+                return new Snapshot(started, mileage, before);
+            }
+        }
+    }
+
+    // 某一时刻的发动机状态
+    static final class Snapshot {
+        private final boolean started;
+        private final double mileage;
+        private final long switches;
+
+        Snapshot(boolean started, double mileage, long switches) {
+            this.started = started;
+            this.mileage = mileage;
+            this.switches = switches;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public double getMileage() {
+            return mileage;
+        }
+
+        // 到快照为止启停状态改变的次数
+        public long getSwitches() {
+            return switches;
+        }
+
+        @Override
+        public String toString() {
+            return "started=" + started + ", mileage=" + mileage + ", switches=" + switches;
+        }
+    }
+}
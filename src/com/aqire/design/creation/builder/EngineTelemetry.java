@@ -0,0 +1,553 @@
+package com.aqire.design.creation.builder;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 发动机遥测存储
+ * <p>
+ * Engine 只保存最新的里程；把 Engine attach() 到这里以后，每次 go() 的里程增量都会带着时间戳
+ * 记录下来。每台发动机一个序列，样本先写进当前块，用 {@link TelemetryBlock} 的
+ * 二阶差分时间戳和异或编码压缩，定时上报时每个样本通常只要一两个字节；块写满后封存，
+ * 配置了溢出目录时封存的块会复制进内存映射文件，不再占用堆。
+ * <p>
+ * 上报线程不做编码：record() 用 CAS 在一个有界的无锁环形缓冲区里抢占位置，暂存序列、时间和值，
+ * 唯一的后台线程按顺序取出样本编码进各自的序列，所以多个线程向同一台 ConcurrentEngine 上报时
+ * 不会在序列的锁上排队。缓冲区按序列编号分成 {@link #STRIPES} 个分片，各有各的尾指针，
+ * 不同发动机的上报线程大多落在不同的分片上，不会争抢同一个 CAS。同一个序列总在同一个分片里，
+ * 时钟在抢占位置的 CAS 之前读取，CAS 成功说明读时钟期间没有别人抢到位置，
+ * 因此每个序列的样本在缓冲区里按时间排好了序；分片满时上报线程等待后台线程腾出空间。
+ * <p>
+ * 查询按块的时间范围跳过无关的块，在序列的锁内只复制出相关的块，解码和回调都在锁外进行；
+ * 降采样按固定宽度的时间桶累加里程。查询前会等后台线程编码完此前记录的样本。
+ * 时间戳必须单调不减，显式传入的时间戳回退或时钟回拨时按上一个时间戳记录。
+ * {@link #dropBefore} 丢弃过期的块，溢出文件里的块全部丢弃后删除文件。
+ * 关闭之后不能再记录，溢出文件被删除，已经溢出的块仍然可以通过映射查询，映射在没有引用之后由 GC 回收。
+ *
+ * @date 2026/10/17 22:00
+ * --------------------------------------------
+ */
+class EngineTelemetry implements AutoCloseable {
+    static final int DEFAULT_BLOCK_SAMPLES = 1024;
+    // 每个溢出文件的大小
+    static final int SEGMENT_BYTES = 16 << 20;
+    // 暂存分片数（不少于处理器数的 2 的幂，最多 64）和每个分片的样本数
+    static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    static final int STRIPE_SAMPLES = 1 << 12;
+    // 后台线程每批从一个分片最多取出的样本数
+    static final int DRAIN_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int blockSamples;
+    private final LongSupplier clock;
+    private final Path spillDirectory;
+
+    private Series[] series = new Series[16];
+    private int seriesCount;
+
+    // 还有块在用或者正在写入的溢出文件。文件编号只增不减，不会覆盖仍被映射着的文件。
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment segment;
+    private int nextSegment;
+    // 溢出文件已经关闭，之后封存的块只能留在堆上
+    private boolean segmentsClosed;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // 已经通过关闭检查、还没写进缓冲区的上报线程数量
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean closed;
+    // 后台线程意外退出的原因
+    private volatile Throwable failure;
+
+    // 样本的消费者，使用基本类型参数，解码时不装箱
+    interface SampleConsumer {
+        void accept(long time, double value);
+    }
+
+    // 封存的块留在堆上，时间取 System.currentTimeMillis()
+    EngineTelemetry() {
+        this(DEFAULT_BLOCK_SAMPLES, System::currentTimeMillis, null);
+    }
+
+    // spillDirectory 为 null 时封存的块留在堆上，否则这个目录归本存储独占，同名的溢出文件会被覆盖
+    EngineTelemetry(int blockSamples, LongSupplier clock, Path spillDirectory) {
+        if (blockSamples < 2) {
+            throw new IllegalArgumentException("每块至少 2 个样本：" + blockSamples);
+        }
+        this.blockSamples = blockSamples;
+        this.clock = clock;
+        this.spillDirectory = spillDirectory;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.writer = new Thread(this::drainLoop, "engine-telemetry-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // 新建一个序列，编号从 0 开始连续分配
+    public synchronized Series newSeries() {
+        if (seriesCount == series.length) {
+            series = Arrays.copyOf(series, seriesCount * 2);
+        }
+        Series created = new Series(seriesCount);
+        series[seriesCount++] = created;
+        return created;
+    }
+
+    public synchronized Series series(int id) {
+        if (id < 0 || id >= seriesCount) {
+            throw new IllegalArgumentException("未知的序列：" + id);
+        }
+        return series[id];
+    }
+
+    public synchronized int seriesCount() {
+        return seriesCount;
+    }
+
+    // 所有序列的样本总数
+    public long sampleCount() {
+        long total = 0;
+        for (Series s : allSeries()) {
+            total += s.sampleCount();
+        }
+        return total;
+    }
+
+    // 所有序列编码后的字节数（按实际位数计算，不含块的元数据）
+    public long encodedBytes() {
+        long total = 0;
+        for (Series s : allSeries()) {
+            total += s.encodedBytes();
+        }
+        return total;
+    }
+
+    public double bytesPerSample() {
+        long samples = sampleCount();
+        return samples == 0 ? 0 : (double) encodedBytes() / samples;
+    }
+
+    // 丢弃所有序列里最后一个样本早于 time 的已封存块，返回丢弃的块数
+    public int dropBefore(long time) {
+        int dropped = 0;
+        for (Series s : allSeries()) {
+            dropped += s.dropBefore(time);
+        }
+        return dropped;
+    }
+
+    // 正在使用的溢出文件数
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    // 等后台线程把调用之前记录的样本都编码进序列
+    public void flush() {
+        for (Stripe stripe : stripes) {
+            long target = stripe.tail.get();
+            while (stripe.flushed.get() < target) {
+                if (!writer.isAlive()) {
+                    // 后台线程退出前可能刚好编码完，再确认一次
+                    if (stripe.flushed.get() >= target) {
+                        break;
+                    }
+                    throw new IllegalStateException("遥测后台线程已停止，还有 " + (target - stripe.flushed.get()) + " 个样本没有编码", failure);
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+            }
+        }
+    }
+
+    // 编码剩余样本后停止后台线程，再关闭并删除溢出文件。已经溢出的块关闭后仍然可以查询；
+    // 映射还没被回收时有的平台删不掉文件，这时文件留在溢出目录里。关闭后再记录会抛出 IllegalStateException。
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            IOException failure = null;
+            for (Segment s : segments) {
+                try {
+                    s.channel.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+                delete(s);
+            }
+            segments.clear();
+            segment = null;
+            segmentsClosed = true;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private synchronized Series[] allSeries() {
+        return Arrays.copyOf(series, seriesCount);
+    }
+
+    // 暂存一个样本。stamp 为 true 时在抢占位置之前读取时钟，忽略 time。
+    private void offer(Series owner, boolean stamp, long time, double value) {
+        // 先登记再检查：后台线程看到关闭后会等登记数归零，这里看到未关闭就一定会被它取走
+        inFlight.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("遥测存储已关闭");
+            }
+            Stripe stripe = owner.stripe;
+            for (; ; ) {
+                long t = stripe.tail.get();
+                int index = (int) t & (STRIPE_SAMPLES - 1);
+                long diff = stripe.sequences.get(index) - t;
+                if (diff == 0) {
+                    long stamped = stamp ? clock.getAsLong() : time;
+                    if (stripe.tail.compareAndSet(t, t + 1)) {
+                        stripe.series[index] = owner;
+                        stripe.times[index] = stamped;
+                        stripe.values[index] = value;
+                        stripe.sequences.set(index, t + 1);
+                        return;
+                    }
+                } else if (diff < 0) {
+                    // 分片已满，等后台线程腾出空间
+                    if (!writer.isAlive()) {
+                        throw new IllegalStateException("遥测后台线程已停止", failure);
+                    }
+                    LockSupport.unpark(writer);
+                    Thread.yield();
+                }
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            for (; ; ) {
+                // 先读关闭状态再取：关闭后没有上报线程还在写入，之后也不会再有，这一轮取空就可以退出
+                boolean last = closed && inFlight.get() == 0;
+                if (drainAll() > 0) {
+                    continue;
+                }
+                if (last) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    // 轮流从每个分片取一批，返回取出的样本总数
+    private int drainAll() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            int count = stripe.drain();
+            if (count > 0) {
+                stripe.flushed.set(stripe.head);
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    // 封存当前块。配置了溢出目录时复制进映射文件，否则或者溢出文件已经关闭时留在堆上。
+    // 溢出的块记到 owner 上，丢弃时据此释放溢出文件。
+    private TelemetryBlock seal(TelemetryBlock.Writer writer, List<Segment> owner) {
+        if (spillDirectory == null) {
+            owner.add(null);
+            return writer.seal();
+        }
+        int words = writer.wordCount();
+        int bytes = words * Long.BYTES;
+        if (bytes > SEGMENT_BYTES) {
+            throw new IllegalStateException("数据块超过溢出文件大小：" + bytes + " 字节");
+        }
+        synchronized (this) {
+            if (segmentsClosed) {
+                owner.add(null);
+                return writer.seal();
+            }
+            if (segment == null || segment.position + bytes > SEGMENT_BYTES) {
+                Segment full = segment;
+                segment = openSegment();
+                if (full != null && full.liveBlocks == 0) {
+                    retire(full);
+                }
+            }
+            Segment target = segment;
+            for (int i = 0; i < words; i++) {
+                target.buffer.putLong(target.position + i * Long.BYTES, writer.word(i));
+            }
+            TelemetryBlock block = new TelemetryBlock(writer.firstTime(), writer.lastTime(), writer.count(),
+                    writer.bits(), target.buffer.slice(target.position, bytes).order(ByteOrder.nativeOrder()).asLongBuffer());
+            target.position += bytes;
+            target.liveBlocks++;
+            owner.add(target);
+            return block;
+        }
+    }
+
+    // 调用方持有本对象的锁
+    private Segment openSegment() {
+        try {
+            Files.createDirectories(spillDirectory);
+            Path file = spillDirectory.resolve("telemetry-" + nextSegment++ + ".seg");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // 溢出文件只在本进程内使用，按本机字节序存放，读取时不必交换字节
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            buffer.order(ByteOrder.nativeOrder());
+            Segment opened = new Segment(file, channel, buffer);
+            segments.add(opened);
+            return opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建遥测溢出文件：" + spillDirectory, e);
+        }
+    }
+
+    // 一个溢出块被丢弃
+    private synchronized void release(Segment released) {
+        if (--released.liveBlocks == 0 && released != segment && !segmentsClosed) {
+            retire(released);
+        }
+    }
+
+    // 溢出文件里已经没有块在用：关闭并删除。正在进行的查询仍持有映射，映射在它们结束后由 GC 回收。
+    private void retire(Segment retired) {
+        segments.remove(retired);
+        try {
+            retired.channel.close();
+        } catch (IOException e) {
+            // 映射不受影响，文件照样删除
+        }
+        delete(retired);
+    }
+
+    private static void delete(Segment s) {
+        try {
+            Files.deleteIfExists(s.file);
+        } catch (IOException e) {
+            // 有的平台在映射回收之前不允许删除，留给下次覆盖
+        }
+    }
+
+    // 一个溢出文件，字段由 EngineTelemetry 的锁保护
+    private static final class Segment {
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int position;
+        // 还没被丢弃的块数
+        int liveBlocks;
+
+        Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    // 暂存缓冲区的一个分片：每个槽位带序号，槽位内容在序号更新之前写好
+    private static final class Stripe {
+        final Series[] series = new Series[STRIPE_SAMPLES];
+        final long[] times = new long[STRIPE_SAMPLES];
+        final double[] values = new double[STRIPE_SAMPLES];
+        final AtomicLongArray sequences = new AtomicLongArray(STRIPE_SAMPLES);
+        final AtomicLong tail = new AtomicLong();
+        // 已经编码进序列的位置，flush() 等它追上
+        final AtomicLong flushed = new AtomicLong();
+        // 只由后台线程访问
+        long head;
+
+        Stripe() {
+            for (int i = 0; i < STRIPE_SAMPLES; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        // 按顺序取出最多 DRAIN_BATCH 个样本编码进各自的序列，返回取出的样本数
+        int drain() {
+            int count = 0;
+            while (count < DRAIN_BATCH) {
+                int index = (int) head & (STRIPE_SAMPLES - 1);
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+                Series owner = series[index];
+                series[index] = null;
+                owner.append(times[index], values[index]);
+                sequences.set(index, head + STRIPE_SAMPLES);
+                head++;
+                count++;
+            }
+            return count;
+        }
+    }
+
+    // 一台发动机的样本序列。编码只由后台线程进行，与查询互斥。
+    final class Series {
+        private final int id;
+        private final Stripe stripe;
+        private final List<TelemetryBlock> sealed = new ArrayList<>();
+        // 与 sealed 一一对应，块所在的溢出文件，留在堆上时为 null
+        private final List<Segment> sealedIn = new ArrayList<>();
+        private TelemetryBlock.Writer open = new TelemetryBlock.Writer();
+        private long lastTime = Long.MIN_VALUE;
+        private long sealedBytes;
+        private long sealedSamples;
+
+        Series(int id) {
+            this.id = id;
+            this.stripe = stripes[id & (STRIPES - 1)];
+        }
+
+        public int id() {
+            return id;
+        }
+
+        // 按存储的时钟记录一个样本
+        public void record(double value) {
+            offer(this, true, 0, value);
+        }
+
+        public void record(long time, double value) {
+            offer(this, false, time, value);
+        }
+
+        private synchronized void append(long time, double value) {
+            time = Math.max(time, lastTime);
+            lastTime = time;
+            open.append(time, value);
+            if (open.count() == blockSamples) {
+                TelemetryBlock block = seal(open, sealedIn);
+                sealed.add(block);
+                sealedBytes += (block.bits + 7) >>> 3;
+                sealedSamples += block.count;
+                open = new TelemetryBlock.Writer();
+            }
+        }
+
+        // 按时间顺序回调时间落在 [from, to) 内的样本。回调在锁外进行，可以再查询或记录。
+        public void query(long from, long to, SampleConsumer consumer) {
+            flush();
+            for (TelemetryBlock block : blocks(from, to)) {
+                block.forEach(from, to, consumer);
+            }
+        }
+
+        // 复制出可能包含 [from, to) 内样本的块，正在写入的块复制一份快照
+        private synchronized List<TelemetryBlock> blocks(long from, long to) {
+            // 块按时间排列，二分找到第一个可能包含 from 的块
+            int low = 0;
+            int high = sealed.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sealed.get(middle).lastTime < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            List<TelemetryBlock> blocks = new ArrayList<>();
+            for (int i = low; i < sealed.size(); i++) {
+                TelemetryBlock block = sealed.get(i);
+                if (block.firstTime >= to) {
+                    return blocks;
+                }
+                blocks.add(block);
+            }
+            if (open.count() > 0 && open.firstTime() < to && open.lastTime() >= from) {
+                blocks.add(open.seal());
+            }
+            return blocks;
+        }
+
+        // 降采样：把 [from, to) 按 bucket 宽度分桶，返回每个桶内样本值的和
+        public double[] downsample(long from, long to, long bucket) {
+            long span = to - from;
+            if (bucket <= 0 || to < from || span < 0) {
+                throw new IllegalArgumentException("无效的降采样区间：[" + from + ", " + to + ")，桶宽 " + bucket);
+            }
+            long buckets = span / bucket + (span % bucket == 0 ? 0 : 1);
+            if (buckets > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("桶的数量太多：" + buckets);
+            }
+            double[] sums = new double[(int) buckets];
+            query(from, to, (time, value) -> sums[(int) ((time - from) / bucket)] += value);
+            return sums;
+        }
+
+        // 丢弃最后一个样本早于 time 的已封存块，返回丢弃的块数
+        public synchronized int dropBefore(long time) {
+            int dropped = 0;
+            while (dropped < sealed.size() && sealed.get(dropped).lastTime < time) {
+                TelemetryBlock block = sealed.get(dropped);
+                sealedBytes -= (block.bits + 7) >>> 3;
+                sealedSamples -= block.count;
+                Segment segment = sealedIn.get(dropped);
+                if (segment != null) {
+                    release(segment);
+                }
+                dropped++;
+            }
+            sealed.subList(0, dropped).clear();
+            sealedIn.subList(0, dropped).clear();
+            return dropped;
+        }
+
+        public long sampleCount() {
+            flush();
+            synchronized (this) {
+                return sealedSamples + open.count();
+            }
+        }
+
+        public long encodedBytes() {
+            flush();
+            synchronized (this) {
+                return sealedBytes + ((open.bits() + 7) >>> 3);
+            }
+        }
+
+        public int sealedBlocks() {
+            flush();
+            synchronized (this) {
+                return sealed.size();
+            }
+        }
+    }
+}
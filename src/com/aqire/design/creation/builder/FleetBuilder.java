@@ -0,0 +1,99 @@
+package com.aqire.design.creation.builder;
+
+/**
+ * 车队生成器
+ * <p>
+ * 实现 {@link Builder}，主管照常调用各个建造步骤，build() 时把这一辆车作为一行直接写进
+ * {@link FleetStore}，不创建 Car、Engine 对象。同一条路线的导航只在第一次出现时查字典，
+ * 之后命中最近一次的编码。build() 之后会自动 reset()，下一辆车从空白开始。
+ * 不是线程安全的，并行建造时每个线程使用自己的生成器，见 {@link FleetStore#fill}。
+ *
+ * @date 2026/10/17 20:00
+ * --------------------------------------------
+ */
+class FleetBuilder implements Builder {
+    private final FleetStore store;
+    // 区间模式下写入 [next, end) 中的行；追加模式下 end 为 -1
+    private int next;
+    private final int end;
+
+    private Type type;
+    private double volume = Double.NaN;
+    private double mileage;
+    private GPSNavigator gps;
+
+    private GPSNavigator lastGps;
+    private char lastRoute;
+
+    // 追加模式：每次 build() 在存储末尾追加一行
+    FleetBuilder(FleetStore store) {
+        this(store, 0, -1);
+    }
+
+    // 区间模式：依次写入预先分配好的行 [from, to)
+    FleetBuilder(FleetStore store, int from, int to) {
+        this.store = store;
+        this.next = from;
+        this.end = to;
+    }
+
+    @Override
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    // 只记下排量和里程，传入的 Engine 不会被保存
+    @Override
+    public void setEngine(Engine engine) {
+        if (engine == null) {
+            setEngine(Double.NaN, 0);
+        } else {
+            setEngine(engine.getVolume(), engine.getMileage());
+        }
+    }
+
+    @Override
+    public void setEngine(double volume, double mileage) {
+        this.volume = volume;
+        this.mileage = mileage;
+    }
+
+    @Override
+    public void setGPS(GPSNavigator gps) {
+        this.gps = gps;
+    }
+
+    @Override
+    public void reset() {
+        type = null;
+        volume = Double.NaN;
+        mileage = 0;
+        gps = null;
+    }
+
+    // 写入一行并返回行号
+    public int build() {
+        int row;
+        if (end < 0) {
+            row = store.append();
+        } else if (next < end) {
+            row = next++;
+        } else {
+            throw new IllegalStateException("分配给生成器的行已经写满：" + end);
+        }
+        store.set(row, FleetStore.encode(type), volume, mileage, route(gps));
+        reset();
+        return row;
+    }
+
+    private char route(GPSNavigator gps) {
+        if (gps == null) {
+            return 0;
+        }
+        if (gps != lastGps) {
+            lastRoute = store.encode(gps);
+            lastGps = gps;
+        }
+        return lastRoute;
+    }
+}
@@ -0,0 +1,318 @@
+package com.aqire.design.creation.builder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 列式车队存储
+ * <p>
+ * 按对象建造时每辆车是 Car + Engine 两个对象，再加上 List 里的引用，几千万辆车会给 GC 带来很大压力。
+ * 这里按列存放：类型存进 byte[]（0 表示没有设置），排量和里程存进 double[]（排量为 NaN 表示没有
+ * 发动机），GPS 导航按路线做字典编码存进 char[]（0 表示没有导航），每辆车只占 19 字节，
+ * 也不产生任何对象。由 {@link FleetBuilder} 写入，需要按 Car 使用时通过享元视图 {@link #view(int)} 访问。
+ * <p>
+ * 追加写入不是线程安全的；{@link #fill} 并行填充时每个任务只写自己的行区间，字典编码加锁。
+ *
+ * @date 2026/10/17 20:00
+ * --------------------------------------------
+ */
+class FleetStore {
+    static final int DEFAULT_THRESHOLD = 1 << 16;
+    private static final int DEFAULT_CAPACITY = 16;
+    // 路线编码用 char 存，0 留给没有导航
+    private static final int MAX_ROUTES = Character.MAX_VALUE;
+    private static final Type[] TYPES = Type.values();
+
+    private int size;
+    private byte[] types;
+    private double[] volumes;
+    private double[] mileages;
+    private char[] routes;
+
+    // 字典的第 0 项是 null，表示没有导航；同一条路线共用一个 GPSNavigator。
+    // 新路线加锁写入，写完重新发布数组引用，读取时不加锁。
+    private volatile GPSNavigator[] dictionary = new GPSNavigator[DEFAULT_CAPACITY];
+    private int routeCount = 1;
+    private final Map<String, Character> codes = new HashMap<>();
+
+    public FleetStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FleetStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        types = new byte[capacity];
+        volumes = new double[capacity];
+        mileages = new double[capacity];
+        routes = new char[capacity];
+    }
+
+    // 并行建造 count 辆车：recipe 对每一行调用一次，在传入的生成器上设置部件，
+    // 例如 (builder, row) -> director.constructSUV(builder)
+    public static FleetStore fill(int count, ObjIntConsumer<Builder> recipe) {
+        return fill(count, recipe, DEFAULT_THRESHOLD);
+    }
+
+    public static FleetStore fill(int count, ObjIntConsumer<Builder> recipe, int threshold) {
+        if (count < 0) {
+            throw new IllegalArgumentException("车辆数不能为负数：" + count);
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("阈值必须大于 0：" + threshold);
+        }
+        FleetStore store = new FleetStore(count);
+        store.size = count;
+        if (count <= threshold || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            fillRange(store, recipe, 0, count);
+        } else {
+            ForkJoinPool.commonPool().invoke(new FillTask(store, recipe, 0, count, threshold));
+        }
+        return store;
+    }
+
+    private static void fillRange(FleetStore store, ObjIntConsumer<Builder> recipe, int from, int to) {
+        FleetBuilder builder = new FleetBuilder(store, from, to);
+        for (int row = from; row < to; row++) {
+            recipe.accept(builder, row);
+            builder.build();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Type getType(int row) {
+        int type = types[check(row)];
+        return type == 0 ? null : TYPES[type - 1];
+    }
+
+    public void setType(int row, Type type) {
+        types[check(row)] = encode(type);
+    }
+
+    public boolean hasEngine(int row) {
+        return !Double.isNaN(volumes[check(row)]);
+    }
+
+    public double getVolume(int row) {
+        return volumes[check(row)];
+    }
+
+    public double getMileage(int row) {
+        return mileages[check(row)];
+    }
+
+    public void setMileage(int row, double mileage) {
+        mileages[check(row)] = mileage;
+    }
+
+    // 设置发动机，volume 为 NaN 表示没有发动机
+    public void setEngine(int row, double volume, double mileage) {
+        volumes[check(row)] = volume;
+        mileages[row] = mileage;
+    }
+
+    public GPSNavigator getGps(int row) {
+        return gps(routes[check(row)]);
+    }
+
+    public void setGps(int row, GPSNavigator gps) {
+        routes[check(row)] = encode(gps);
+    }
+
+    // 所有车的总里程，只扫描里程一列
+    public double totalMileage() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += mileages[i];
+        }
+        return total;
+    }
+
+    // 返回指向第 row 辆车的享元视图
+    public View view(int row) {
+        return new View(this, check(row));
+    }
+
+    // 按列的容量估算占用的字节数（不含路线字典）
+    public long estimatedBytes() {
+        return (long) types.length * (Byte.BYTES + Double.BYTES * 2 + Character.BYTES);
+    }
+
+    // 追加一行，返回行号
+    int append() {
+        if (size == types.length) {
+            int capacity = size + (size >> 1) + 1;
+            types = Arrays.copyOf(types, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+            mileages = Arrays.copyOf(mileages, capacity);
+            routes = Arrays.copyOf(routes, capacity);
+        }
+        return size++;
+    }
+
+    // 一次写入整行，由 FleetBuilder 调用
+    void set(int row, byte type, double volume, double mileage, char route) {
+        types[row] = type;
+        volumes[row] = volume;
+        mileages[row] = mileage;
+        routes[row] = route;
+    }
+
+    static byte encode(Type type) {
+        return type == null ? 0 : (byte) (type.ordinal() + 1);
+    }
+
+    synchronized char encode(GPSNavigator gps) {
+        if (gps == null) {
+            return 0;
+        }
+        Character code = codes.get(gps.getRoute());
+        if (code == null) {
+            if (routeCount > MAX_ROUTES) {
+                throw new IllegalStateException("路线种类超过上限：" + MAX_ROUTES);
+            }
+            code = (char) routeCount++;
+            GPSNavigator[] dictionary = this.dictionary;
+            if (code == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+            }
+            dictionary[code] = gps;
+            this.dictionary = dictionary;
+            codes.put(gps.getRoute(), code);
+        }
+        return code;
+    }
+
+    GPSNavigator gps(char code) {
+        return dictionary[code];
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        }
+        return row;
+    }
+
+    private static final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FleetStore store;
+        private final ObjIntConsumer<Builder> recipe;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        FillTask(FleetStore store, ObjIntConsumer<Builder> recipe, int from, int to, int threshold) {
+            this.store = store;
+            this.recipe = recipe;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                fillRange(store, recipe, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FillTask(store, recipe, from, middle, threshold),
+                    new FillTask(store, recipe, middle, to, threshold));
+        }
+    }
+
+    // 享元视图。本身不保存部件，读写都转发到存储的列上；调用 moveTo 可以让同一个视图
+    // 指向另一行，遍历时不必为每行新建对象。
+    static final class View extends Car {
+        private final FleetStore store;
+        private final EngineView engine;
+        private int row;
+
+        View(FleetStore store, int row) {
+            super(null, null, null);
+            this.store = store;
+            this.row = row;
+            this.engine = new EngineView(this);
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public View moveTo(int row) {
+            this.row = store.check(row);
+            engine.off();
+            return this;
+        }
+
+        @Override
+        public Type getType() {
+            return store.getType(row);
+        }
+
+        @Override
+        public void setType(Type type) {
+            store.setType(row, type);
+        }
+
+        @Override
+        public GPSNavigator getGps() {
+            return store.getGps(row);
+        }
+
+        @Override
+        public void setGps(GPSNavigator gps) {
+            store.setGps(row, gps);
+        }
+
+        // 返回指向当前行的发动机视图，没有发动机时返回 null
+        @Override
+        public Engine getEngine() {
+            return store.hasEngine(row) ? engine : null;
+        }
+
+        // 只复制传入发动机的排量和里程
+        @Override
+        public void setEngine(Engine engine) {
+            if (engine == null) {
+                store.setEngine(row, Double.NaN, 0);
+            } else {
+                store.setEngine(row, engine.getVolume(), engine.getMileage());
+            }
+        }
+    }
+
+    // 发动机视图。排量和里程落在列上，覆盖 Engine 的访问方法；启动状态不在存储里，
+    // 用 Engine 自己的字段保存在视图中，移动视图时熄火。
+    static final class EngineView extends Engine {
+        private final View car;
+
+        EngineView(View car) {
+            super(0, 0);
+            this.car = car;
+        }
+
+        @Override
+        void addMileage(double mileage) {
+            car.store.setMileage(car.row, car.store.getMileage(car.row) + mileage);
+        }
+
+        @Override
+        public double getVolume() {
+            return car.store.getVolume(car.row);
+        }
+
+        @Override
+        public double getMileage() {
+            return car.store.getMileage(car.row);
+        }
+    }
+}
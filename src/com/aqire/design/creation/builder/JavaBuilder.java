@@ -1,5 +1,7 @@
 package com.aqire.design.creation.builder;
 
+import java.io.IOException;
+
 /**
  * 建造者模式
  *
@@ -16,6 +18,14 @@ interface Builder {
     void setEngine(Engine engine);
 
     void setGPS(GPSNavigator gps);
+
+    // 按排量和里程设置发动机。默认新建一个 Engine，不需要 Engine 对象的生成器可以只记下两个数值。
+    default void setEngine(double volume, double mileage) {
+        setEngine(new Engine(volume, mileage));
+    }
+
+    // 清空已设置的部件，让生成器可以重复使用
+    void reset();
 }
 
 // 产品特征 1
@@ -24,16 +34,25 @@ enum Type {
 }
 
 // 产品特征 2
+// ConcurrentEngine 和 FleetStore 的发动机视图把启动状态和里程存放在别处，它们覆盖状态访问方法和
+// addMileage()；go() 的启动检查和遥测记录只写在这里，只通过这些方法访问状态。
 class Engine {
     private final double volume;
     private double mileage;
     private boolean started;
+    // 记录每次 go() 的遥测序列，没有 attach() 时为 null
+    private EngineTelemetry.Series telemetry;
 
     public Engine(double volume, double mileage) {
         this.volume = volume;
         this.mileage = mileage;
     }
 
+    // 并发模式：多个线程同时 go() 不会丢失里程，见 ConcurrentEngine
+    public static ConcurrentEngine concurrent(double volume, double mileage) {
+        return new ConcurrentEngine(volume, mileage);
+    }
+
     public void on() {
         started = true;
     }
@@ -47,8 +66,9 @@ class Engine {
     }
 
     public void go(double mileage) {
-        if (started) {
-            this.mileage += mileage;
+        if (isStarted()) {
+            addMileage(mileage);
+            record(mileage);
         } else {
             System.err.println("Cannot go(), you must start engine first!");
         }
@@ -58,6 +78,25 @@ class Engine {
         return volume;
     }
 
+    // 之后每次 go() 的里程增量都记录到 telemetry 的一个新序列中，返回序列编号。
+    // 需要在发动机交给其他线程使用之前调用。
+    public int attach(EngineTelemetry telemetry) {
+        this.telemetry = telemetry.newSeries();
+        return this.telemetry.id();
+    }
+
+    // 累加里程，子类把里程存放在别处时覆盖
+    void addMileage(double mileage) {
+        this.mileage += mileage;
+    }
+
+    void record(double mileage) {
+        EngineTelemetry.Series telemetry = this.telemetry;
+        if (telemetry != null) {
+            telemetry.record(mileage);
+        }
+    }
+
     public double getMileage() {
         return mileage;
     }
@@ -65,6 +104,9 @@ class Engine {
 
 // 产品特征 3
 class GPSNavigator {
+    // GPSNavigator 不可变，默认路线的导航可以在所有汽车之间共享
+    static final GPSNavigator DEFAULT = new GPSNavigator();
+
     private final String route;
 
     public GPSNavigator() {
@@ -120,6 +162,42 @@ class Car {
     }
 }
 
+// 不可变的汽车。所有字段都是 final，发动机只保存建造时的排量和里程，GPSNavigator 本身不可变，
+// 所以构造完成后可以不加同步地发布给其他线程。需要可以修改的汽车时用 toCar() 复制一份。
+final class ImmutableCar {
+    private final Type type;
+    private final double engineVolume;
+    private final double engineMileage;
+    private final GPSNavigator gps;
+
+    ImmutableCar(Type type, double engineVolume, double engineMileage, GPSNavigator gps) {
+        this.type = type;
+        this.engineVolume = engineVolume;
+        this.engineMileage = engineMileage;
+        this.gps = gps;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getEngineVolume() {
+        return engineVolume;
+    }
+
+    public double getEngineMileage() {
+        return engineMileage;
+    }
+
+    public GPSNavigator getGps() {
+        return gps;
+    }
+
+    public Car toCar() {
+        return new Car(type, new Engine(engineVolume, engineMileage), gps);
+    }
+}
+
 class Manual {
     // 用户使用手册应该根据汽车配置进行编制，并介绍汽车的所有功能。
     private final Type type;
@@ -143,14 +221,54 @@ class Manual {
         }
         return info;
     }
+
+    // 流式输出，与 print() 的文本相同，但不拼接字符串。批量输出时请复用同一个 ManualWriter。
+    public void print(Appendable out) throws IOException {
+        new ManualWriter().write(this, out);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public GPSNavigator getGps() {
+        return gps;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
 }
 
 // 具体生成器类将遵循生成器接口并提供生成步骤的具体实现。你的程序中可能会
 // 有多个以不同方式实现的生成器变体。
+// 生成器可以 reset() 后重复使用；forThread() 返回当前线程复用的那一个，build() 之后归还。
+// 归还前在同一个线程上再次调用 forThread()（例如建造过程中又嵌套建造另一辆车）会拿到一个新的生成器，
+// 不会把外层正在建造的部件清掉；拿到之后没有 build() 就放弃的话，这个线程之后的 forThread() 都会新建。
+// 按排量和里程设置发动机时只记下两个数值，build() 时才创建 Engine，buildImmutable() 则完全不需要
+// Engine 对象，除了产品本身不产生其他垃圾。
 class CarBuilder implements Builder {
+    private static final ThreadLocal<CarBuilder> LOCAL = ThreadLocal.withInitial(CarBuilder::new);
+
     private Type type;
     private GPSNavigator gps;
     private Engine engine;
+    private double volume;
+    private double mileage;
+    private boolean engineSpecified;
+    // 线程内复用的生成器已经借出、还没有 build()
+    private boolean leased;
+
+    // 当前线程复用的生成器，返回前已经重置；它正被外层使用时返回一个新的生成器
+    public static CarBuilder forThread() {
+        CarBuilder builder = LOCAL.get();
+        if (builder.leased) {
+            return new CarBuilder();
+        }
+        builder.reset();
+        builder.leased = true;
+        return builder;
+    }
 
     @Override
     public void setType(Type type) {
@@ -160,6 +278,15 @@ class CarBuilder implements Builder {
     @Override
     public void setEngine(Engine engine) {
         this.engine = engine;
+        this.engineSpecified = false;
+    }
+
+    @Override
+    public void setEngine(double volume, double mileage) {
+        this.engine = null;
+        this.volume = volume;
+        this.mileage = mileage;
+        this.engineSpecified = true;
     }
 
     @Override
@@ -167,19 +294,61 @@ class CarBuilder implements Builder {
         this.gps = gps;
     }
 
+    @Override
+    public void reset() {
+        type = null;
+        gps = null;
+        engine = null;
+        volume = 0;
+        mileage = 0;
+        engineSpecified = false;
+    }
+
     // 具体生成器需要自行提供获取结果的方法。这是因为不同类型的生成器可能
     // 会创建不遵循相同接口的、完全不同的产品。所以也就无法在生成器接口中
     // 声明这些方法（至少在静态类型的编程语言中是这样的）。
     public Car build() {
+        leased = false;
+        Engine engine = engineSpecified ? new Engine(volume, mileage) : this.engine;
         return new Car(type, engine, gps);
     }
+
+    // 不可变的汽车，必须设置类型和发动机。传入的 Engine 只读取当前的排量和里程。
+    public ImmutableCar buildImmutable() {
+        leased = false;
+        if (type == null) {
+            throw new IllegalStateException("不可变汽车必须设置类型");
+        }
+        if (engineSpecified) {
+            return new ImmutableCar(type, volume, mileage, gps);
+        }
+        if (engine == null) {
+            throw new IllegalStateException("不可变汽车必须设置发动机");
+        }
+        return new ImmutableCar(type, engine.getVolume(), engine.getMileage(), gps);
+    }
 }
 
 // 生成器与其他创建型模式的不同之处在于：它让你能创建不遵循相同接口的产品。
 class CarManualBuilder implements Builder {
+    private static final ThreadLocal<CarManualBuilder> LOCAL = ThreadLocal.withInitial(CarManualBuilder::new);
+
     private Type type;
     private GPSNavigator gps;
     private Engine engine;
+    // 线程内复用的生成器已经借出、还没有 build()
+    private boolean leased;
+
+    // 当前线程复用的生成器，返回前已经重置；它正被外层使用时返回一个新的生成器，规则同 CarBuilder.forThread()
+    public static CarManualBuilder forThread() {
+        CarManualBuilder builder = LOCAL.get();
+        if (builder.leased) {
+            return new CarManualBuilder();
+        }
+        builder.reset();
+        builder.leased = true;
+        return builder;
+    }
 
     @Override
     public void setType(Type type) {
@@ -196,10 +365,18 @@ class CarManualBuilder implements Builder {
         this.gps = gps;
     }
 
+    @Override
+    public void reset() {
+        type = null;
+        gps = null;
+        engine = null;
+    }
+
     // 具体生成器需要自行提供获取结果的方法。这是因为不同类型的生成器可能
     // 会创建不遵循相同接口的、完全不同的产品。所以也就无法在生成器接口中
     // 声明这些方法（至少在静态类型的编程语言中是这样的）。
     public Manual build() {
+        leased = false;
         return new Manual(type, gps, engine);
     }
 }
@@ -212,19 +389,19 @@ class Director {
 
     public void constructSportsCar(Builder builder) {
         builder.setType(Type.SPORTS_CAR);
-        builder.setEngine(new Engine(3.0, 0));
-        builder.setGPS(new GPSNavigator());
+        builder.setEngine(3.0, 0);
+        builder.setGPS(GPSNavigator.DEFAULT);
     }
 
     public void constructCityCar(Builder builder) {
         builder.setType(Type.CITY_CAR);
-        builder.setEngine(new Engine(1.2, 0));
+        builder.setEngine(1.2, 0);
     }
 
     public void constructSUV(Builder builder) {
         builder.setType(Type.SUV);
-        builder.setEngine(new Engine(2.5, 0));
-        builder.setGPS(new GPSNavigator());
+        builder.setEngine(2.5, 0);
+        builder.setGPS(GPSNavigator.DEFAULT);
     }
 }
 
@@ -244,6 +421,48 @@ public class JavaBuilder {
 
         //
         System.out.println("Car built:\n" + car.getType());
+
+        // 复用当前线程的生成器，建造一辆可以直接跨线程共享的不可变汽车
+        CarBuilder reused = CarBuilder.forThread();
+        director.constructSUV(reused);
+        ImmutableCar suv = reused.buildImmutable();
+        System.out.println("Immutable car built:\n" + suv.getType() + ", volume " + suv.getEngineVolume());
+
+        // 列式车队：主管照常建造，每辆车写成存储中的一行，按需通过视图当作 Car 使用
+        FleetStore fleet = FleetStore.fill(3, (builder, row) -> director.constructCityCar(builder));
+        FleetStore.View view = fleet.view(0);
+        view.getEngine().on();
+        view.getEngine().go(42);
+        System.out.println("Fleet built:\n" + fleet.size() + " x " + view.getType()
+                + ", mileage " + fleet.totalMileage() + ", estimated " + fleet.estimatedBytes() + " bytes");
+
+        // 并发发动机：多个遥测线程可以同时上报里程
+        ConcurrentEngine engine = Engine.concurrent(2.5, 0);
+        engine.on();
+        engine.go(12.5);
+        System.out.println("Engine snapshot:\n" + engine.snapshot());
+
+        // 遥测：记录每次 go() 的里程增量，按时间范围查询和降采样
+        try (EngineTelemetry telemetry = new EngineTelemetry()) {
+            Engine tracked = new Engine(2.5, 0);
+            int series = tracked.attach(telemetry);
+            tracked.on();
+            for (int i = 1; i <= 5; i++) {
+                tracked.go(i * 0.5);
+            }
+            double[] total = telemetry.series(series).downsample(0, Long.MAX_VALUE, Long.MAX_VALUE);
+            System.out.println("Telemetry:\n" + telemetry.sampleCount() + " samples, " + total[0] + " km, "
+                    + telemetry.bytesPerSample() + " bytes/sample");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         System.out.println("\nCar manual built:\n" + carManual.print());
+
+        // 流式输出：直接写进调用方提供的输出目标
+        try {
+            carManual.print(System.out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,143 @@
+package com.aqire.design.creation.builder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 流式输出使用手册
+ * <p>
+ * {@link Manual#print()} 用 String 拼接，每一行都会产生几个中间字符串，double 也要先转成字符串。
+ * 这里把同样的文本直接写进调用方提供的 Appendable 或 ByteBuffer：枚举名直接写入，
+ * 数字逐位写出，常见的里程、排量（不超过 6 位小数的普通数值）不分配任何对象，
+ * 极少数需要科学计数法的数值才退回 Double.toString。输出与 print() 逐字节相同。
+ * <p>
+ * 一个写入器可以反复使用，批量输出时只需要创建一次；不是线程安全的。
+ *
+ * @date 2026/10/17 19:00
+ * --------------------------------------------
+ */
+class ManualWriter {
+    // 一本手册的最大字节数：各行固定文本 + 最长的类型名 + 两个 double 的最长写法
+    static final int MAX_MANUAL_BYTES = 160;
+
+    private static final int MAX_FRACTION_DIGITS = 6;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L
+    };
+
+    private Appendable text;
+    private ByteBuffer bytes;
+
+    // 写入 out，与 manual.print() 的结果相同
+    public void write(Manual manual, Appendable out) throws IOException {
+        text = out;
+        try {
+            render(manual);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            text = null;
+        }
+    }
+
+    // 以 ASCII 写入 out。空间不够时抛出 BufferOverflowException，已经写入的部分不会回退。
+    public void write(Manual manual, ByteBuffer out) {
+        bytes = out;
+        try {
+            render(manual);
+        } finally {
+            bytes = null;
+        }
+    }
+
+    // 批量模式：从 manuals[from] 开始依次写入 out，直到写完或剩余空间放不下下一本，返回写入的本数
+    public int writeAll(List<Manual> manuals, int from, ByteBuffer out) {
+        bytes = out;
+        try {
+            int i = from;
+            for (; i < manuals.size() && out.remaining() >= MAX_MANUAL_BYTES; i++) {
+                render(manuals.get(i));
+            }
+            return i - from;
+        } finally {
+            bytes = null;
+        }
+    }
+
+    private void render(Manual manual) {
+        put("Type of car: ");
+        put(manual.getType() == null ? "null" : manual.getType().name());
+        put("\nEngine: volume - ");
+        put(manual.getEngine().getVolume());
+        put("; mileage - ");
+        put(manual.getEngine().getMileage());
+        put(manual.getGps() != null ? "\nGPS Navigator: Functional\n" : "\nGPS Navigator: N/A\n");
+    }
+
+    // 与 Double.toString 相同的写法。[1e-3, 1e7) 之间、最多 6 位小数就能精确还原的数值逐位写出，
+    // 其他数值交给 Double.toString。
+    private void put(double value) {
+        double abs = Math.abs(value);
+        if (!(abs == 0 || (abs >= 1e-3 && abs < 1e7))) {
+            put(Double.toString(value));
+            return;
+        }
+        for (int digits = 1; digits <= MAX_FRACTION_DIGITS; digits++) {
+            long scale = POWERS_OF_TEN[digits];
+            long scaled = Math.round(abs * scale);
+            // 乘法可能有一位误差，相邻的两个候选也检查一下
+            for (long candidate = scaled - 1; candidate <= scaled + 1; candidate++) {
+                if (candidate >= 0 && (double) candidate / scale == abs) {
+                    if (Double.doubleToRawLongBits(value) < 0) {
+                        put('-');
+                    }
+                    putDigits(candidate / scale, 1);
+                    put('.');
+                    putDigits(candidate % scale, digits);
+                    return;
+                }
+            }
+        }
+        put(Double.toString(value));
+    }
+
+    // 写出非负整数，不足 minDigits 位时前面补 0；从最高位开始写，不需要缓冲区
+    private void putDigits(long value, int minDigits) {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int i = Math.max(digits, minDigits) - 1; i >= 0; i--) {
+            put((char) ('0' + value / POWERS_OF_TEN[i] % 10));
+        }
+    }
+
+    private void put(String s) {
+        if (bytes != null) {
+            for (int i = 0; i < s.length(); i++) {
+                bytes.put((byte) s.charAt(i));
+            }
+            return;
+        }
+        try {
+            text.append(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void put(char c) {
+        if (bytes != null) {
+            bytes.put((byte) c);
+            return;
+        }
+        try {
+            text.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
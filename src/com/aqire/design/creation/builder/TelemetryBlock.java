@@ -0,0 +1,237 @@
+package com.aqire.design.creation.builder;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * 遥测数据块的编码和解码
+ * <p>
+ * 参照 Gorilla 时序压缩：块头是第一个样本的完整时间戳和值；之后的时间戳只记录
+ * 二阶差分（这一次间隔减去上一次间隔），定时上报时几乎总是 0，只占 1 位；值与上一个值做异或，
+ * 相同时只占 1 位，不同时只写出中间有意义的那几位，前导 0 和末尾 0 的个数能沿用上一次时不再写。
+ * <p>
+ * 位流按 64 位字、高位在前存放，末尾多留一个空字，读取跨字的位段时不必判断边界。
+ * 已封存的块既可以留在堆上，也可以放进内存映射文件，解码时都通过 LongBuffer 读取。
+ *
+ * @date 2026/10/17 22:00
+ * --------------------------------------------
+ */
+final class TelemetryBlock {
+    final long firstTime;
+    final long lastTime;
+    final int count;
+    final int bits;
+    private final LongBuffer words;
+
+    TelemetryBlock(long firstTime, long lastTime, int count, int bits, LongBuffer words) {
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.count = count;
+        this.bits = bits;
+        this.words = words;
+    }
+
+    // 依次解码时间落在 [from, to) 内的样本
+    void forEach(long from, long to, EngineTelemetry.SampleConsumer consumer) {
+        decode(words, count, from, to, consumer);
+    }
+
+    static void decode(LongBuffer words, int count, long from, long to, EngineTelemetry.SampleConsumer consumer) {
+        if (count == 0) {
+            return;
+        }
+        Reader in = new Reader(words);
+        long time = in.read(64);
+        long value = in.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; ; ) {
+            if (time >= to) {
+                return;
+            }
+            if (time >= from) {
+                consumer.accept(time, Double.longBitsToDouble(value));
+            }
+            if (++i == count) {
+                return;
+            }
+            delta += in.readDeltaOfDelta();
+            time += delta;
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int length = (int) in.read(6) + 1;
+                    trailing = 64 - leading - length;
+                }
+                value ^= in.read(64 - leading - trailing) << trailing;
+            }
+        }
+    }
+
+    // 编码器，一个块只由一个线程写入
+    static final class Writer {
+        private long[] words = new long[4];
+        private int bits;
+        private int count;
+        private long firstTime;
+        private long lastTime;
+        private long lastDelta;
+        private long lastValue;
+        // 上一次写出有意义位时的前导 0 和末尾 0 个数，-1 表示还没有
+        private int leading = -1;
+        private int trailing;
+
+        void append(long time, double value) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count == 0) {
+                firstTime = time;
+                write(time, 64);
+                write(valueBits, 64);
+            } else {
+                long delta = time - lastTime;
+                writeDeltaOfDelta(delta - lastDelta);
+                lastDelta = delta;
+                writeXor(valueBits ^ lastValue);
+            }
+            lastTime = time;
+            lastValue = valueBits;
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int bits() {
+            return bits;
+        }
+
+        long firstTime() {
+            return firstTime;
+        }
+
+        long lastTime() {
+            return lastTime;
+        }
+
+        // 用到的字数，另加一个空字
+        int wordCount() {
+            return ((bits + 63) >>> 6) + 1;
+        }
+
+        long word(int index) {
+            return words[index];
+        }
+
+        // 解码尚未封存的块，调用方负责与 append() 互斥
+        void forEach(long from, long to, EngineTelemetry.SampleConsumer consumer) {
+            decode(LongBuffer.wrap(words), count, from, to, consumer);
+        }
+
+        // 封存成留在堆上的块
+        TelemetryBlock seal() {
+            return new TelemetryBlock(firstTime, lastTime, count, bits,
+                    LongBuffer.wrap(Arrays.copyOf(words, wordCount())));
+        }
+
+        // 区间 [-63, 64]、[-255, 256]、[-2047, 2048] 分别用 7、9、12 位，其他用 64 位
+        private void writeDeltaOfDelta(long dod) {
+            if (dod == 0) {
+                write(0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                write(0b10, 2);
+                write(dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                write(0b110, 3);
+                write(dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                write(0b1110, 4);
+                write(dod + 2047, 12);
+            } else {
+                write(0b1111, 4);
+                write(dod, 64);
+            }
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                write(0, 1);
+                return;
+            }
+            int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trail = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && lead >= leading && trail >= trailing) {
+                write(0b10, 2);
+                write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                int length = 64 - lead - trail;
+                write(0b11, 2);
+                write(lead, 5);
+                write(length - 1, 6);
+                write(xor >>> trail, length);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+
+        // 写出 value 的低 n 位（1 ≤ n ≤ 64），高位在前
+        private void write(long value, int n) {
+            int required = ((bits + n + 63) >>> 6) + 1;
+            if (required > words.length) {
+                words = Arrays.copyOf(words, Math.max(required, words.length * 2));
+            }
+            if (n < 64) {
+                value &= (1L << n) - 1;
+            }
+            int index = bits >>> 6;
+            int free = 64 - (bits & 63);
+            if (n <= free) {
+                words[index] |= value << (free - n);
+            } else {
+                words[index] |= value >>> (n - free);
+                words[index + 1] |= value << (64 - (n - free));
+            }
+            bits += n;
+        }
+    }
+
+    // 解码用的位读取器
+    private static final class Reader {
+        private final LongBuffer words;
+        private int position;
+
+        Reader(LongBuffer words) {
+            this.words = words;
+        }
+
+        long readDeltaOfDelta() {
+            if (read(1) == 0) {
+                return 0;
+            }
+            if (read(1) == 0) {
+                return read(7) - 63;
+            }
+            if (read(1) == 0) {
+                return read(9) - 255;
+            }
+            if (read(1) == 0) {
+                return read(12) - 2047;
+            }
+            return read(64);
+        }
+
+        // 读出 n 位（1 ≤ n ≤ 64）
+        long read(int n) {
+            int index = position >>> 6;
+            int used = position & 63;
+            int available = 64 - used;
+            long high = (words.get(index) << used) >>> (64 - n);
+            position += n;
+            if (n <= available) {
+                return high;
+            }
+            return high | (words.get(index + 1) >>> (64 - (n - available)));
+        }
+    }
+}
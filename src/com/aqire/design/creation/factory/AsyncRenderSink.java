@@ -0,0 +1,196 @@
+package com.aqire.design.creation.factory;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步批量输出
+ * <p>
+ * 多个线程写入一个有界的无锁环形缓冲区（每个槽位带序号，生产者用 CAS 抢占位置），
+ * 唯一的后台线程把缓冲区里的内容拼成一批，一次性写到输出流，控制台的锁每批只进一次。
+ * 缓冲区满时按背压策略处理：DROP 直接丢弃并计数，BLOCK 等待后台线程腾出空间。
+ * <p>
+ * 正在写入的生产者先登记到 inFlight 计数上再检查是否已关闭，关闭后后台线程要等计数归零、
+ * 缓冲区取空才退出，所以通过了关闭检查的写入不会丢失。后台线程意外退出时，
+ * flush() 和阻塞中的生产者会抛出 IllegalStateException，而不是一直等下去。
+ *
+ * @date 2026/10/17 11:00
+ * --------------------------------------------
+ */
+class AsyncRenderSink implements RenderSink, AutoCloseable {
+
+    enum Backpressure {
+        DROP, BLOCK
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final PrintStream out;
+    private final Backpressure backpressure;
+    private final int batchSize;
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // 已经写到输出流的位置，flush() 等它追上
+    private final AtomicLong flushed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    // 已经通过关闭检查、还没写完的生产者数量
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean closed;
+    // 后台线程意外退出的原因
+    private volatile Throwable failure;
+    private long head;
+
+    AsyncRenderSink(PrintStream out, int capacity, int batchSize, Backpressure backpressure) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("容量和批大小必须大于 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.out = out;
+        this.backpressure = backpressure;
+        this.batchSize = batchSize;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.writer = new Thread(this::drainLoop, "render-sink-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void println(String line) {
+        // 先登记再检查：后台线程看到关闭后会等登记数归零，这里看到未关闭就一定会被它取走
+        inFlight.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("输出已关闭");
+            }
+            offer(line);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void offer(String line) {
+        for (; ; ) {
+            long t = tail.get();
+            int index = (int) t & mask;
+            long diff = sequences.get(index) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.lazySet(index, line);
+                    sequences.set(index, t + 1);
+                    return;
+                }
+            } else if (diff < 0) {
+                // 缓冲区已满
+                if (backpressure == Backpressure.DROP) {
+                    dropped.increment();
+                    return;
+                }
+                checkWriter();
+                LockSupport.unpark(writer);
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (flushed.get() < target) {
+            if (!writer.isAlive()) {
+                // 后台线程退出前可能刚好写完，再确认一次
+                if (flushed.get() >= target) {
+                    break;
+                }
+                throw new IllegalStateException("后台输出线程已停止，还有 " + (target - flushed.get()) + " 行没有输出", failure);
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+        out.flush();
+    }
+
+    private void checkWriter() {
+        if (!writer.isAlive()) {
+            throw new IllegalStateException("后台输出线程已停止", failure);
+        }
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // 输出剩余内容后停止后台线程
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.flush();
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(batchSize * 32);
+        try {
+            for (; ; ) {
+                if (drain(batch) > 0) {
+                    write(batch);
+                } else if (closed && inFlight.get() == 0) {
+                    // 关闭后没有生产者还在写入，之后也不会再有，最后取空一次就退出
+                    while (drain(batch) > 0) {
+                        write(batch);
+                    }
+                    return;
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    private void write(StringBuilder batch) {
+        out.print(batch);
+        batch.setLength(0);
+        flushed.set(head);
+    }
+
+    // 取出最多 batchSize 行拼进 batch，返回取出的行数
+    private int drain(StringBuilder batch) {
+        int count = 0;
+        while (count < batchSize) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            batch.append(slots.get(index)).append(System.lineSeparator());
+            slots.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            count++;
+        }
+        return count;
+    }
+}
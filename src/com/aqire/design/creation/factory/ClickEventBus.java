@@ -0,0 +1,356 @@
+package com.aqire.design.creation.factory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 点击事件总线
+ * <p>
+ * 介于输入和按钮之间的事件分发，参照 Disruptor 的做法：
+ * <ul>
+ * <li>事件对象在环形缓冲区里预先分配好，发布时只改字段，不产生垃圾；</li>
+ * <li>只有一个写线程，领取序号不需要 CAS，发布只是一次 release 写；</li>
+ * <li>每个处理线程维护自己的序号，批量处理所有已发布的事件，按按钮编号分区，
+ * 同一个按钮的 onClick() 始终在同一个线程上调用，按钮本身不需要加锁；</li>
+ * <li>没有事件时按等待策略忙等、让出或挂起。</li>
+ * </ul>
+ * 按钮可以来自任意 Dialog 子类的 createButton()，先 register() 拿到编号，再 start()；
+ * start() 之前调用 publish() 或 awaitProcessed() 会抛出 IllegalStateException，close() 之后调用 publish() 也一样。
+ * <p>
+ * onClick() 抛出的异常不会终止处理线程：计入 {@link #failures()}，最近一次保存在 {@link #lastFailure()}，
+ * 事件照常算作已处理。处理线程因为 Error 意外退出时，等待它的 publish() 和 awaitProcessed()
+ * 会抛出 IllegalStateException，而不是一直等下去。
+ *
+ * @date 2026/10/17 14:00
+ * --------------------------------------------
+ */
+class ClickEventBus implements AutoCloseable {
+
+    // 处理线程没有事件可处理、或者写线程等待空位时的等待方式
+    enum WaitStrategy {
+        // 一直自旋，延迟最低，独占一个核
+        BUSY_SPIN {
+            @Override
+            void idle(int spins) {
+                Thread.onSpinWait();
+            }
+        },
+        // 先自旋一会儿，再让出 CPU
+        YIELD {
+            @Override
+            void idle(int spins) {
+                if (spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        },
+        // 先自旋，再短暂挂起，最省 CPU，延迟也最高
+        PARK {
+            @Override
+            void idle(int spins) {
+                if (spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(1_000);
+                }
+            }
+        };
+
+        abstract void idle(int spins);
+    }
+
+    // 环形缓冲区中的事件，发布时原地复用
+    static final class ClickEvent {
+        int buttonId;
+        long publishedNanos;
+    }
+
+    // 带填充的序号，避免不同线程频繁写的序号落在同一缓存行
+    static final class Sequence {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6, p7;
+        private volatile long value = -1;
+        @SuppressWarnings("unused")
+        private long q1, q2, q3, q4, q5, q6, q7;
+
+        long get() {
+            return (long) VALUE.getAcquire(this);
+        }
+
+        void set(long v) {
+            VALUE.setRelease(this, v);
+        }
+    }
+
+    // 延迟直方图的桶数，第 i 个桶统计 [2^i, 2^(i+1)) 纳秒
+    private static final int LATENCY_BUCKETS = 40;
+
+    private final ClickEvent[] ring;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final boolean recordLatency;
+    private final Sequence cursor = new Sequence();
+    private final List<Button> registered = new ArrayList<>();
+    private final int processorCount;
+    private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS);
+    private final LongAdder failures = new LongAdder();
+    private volatile RuntimeException lastFailure;
+
+    // start() 之后才有值。按钮和处理线程放在一个不可变对象里通过 volatile 一次发布，
+    // 写线程和 awaitProcessed() 的调用方读到非 null 时一定能看到完整的数组。
+    private volatile Started started;
+    private volatile boolean running;
+    // 以下字段只由写线程访问
+    private long next;
+    private long cachedGate = -1;
+
+    ClickEventBus(int capacity, int processorCount, WaitStrategy waitStrategy, boolean recordLatency) {
+        if (capacity <= 0 || processorCount <= 0) {
+            throw new IllegalArgumentException("容量和处理线程数必须大于 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.ring = new ClickEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new ClickEvent();
+        }
+        this.mask = size - 1;
+        this.processorCount = processorCount;
+        this.waitStrategy = waitStrategy;
+        this.recordLatency = recordLatency;
+    }
+
+    // 注册一个按钮，返回它的编号。必须在 start() 之前调用。
+    public synchronized int register(Button button) {
+        if (started != null) {
+            throw new IllegalStateException("事件总线已启动，不能再注册按钮");
+        }
+        registered.add(button);
+        return registered.size() - 1;
+    }
+
+    public synchronized void start() {
+        if (started != null) {
+            throw new IllegalStateException("事件总线已启动");
+        }
+        Button[] buttons = registered.toArray(new Button[0]);
+        Processor[] processors = new Processor[processorCount];
+        for (int i = 0; i < processorCount; i++) {
+            processors[i] = new Processor(i, buttons);
+        }
+        running = true;
+        started = new Started(buttons, processors);
+        for (Processor processor : processors) {
+            processor.start();
+        }
+    }
+
+    private Started started() {
+        Started s = started;
+        if (s == null) {
+            throw new IllegalStateException("事件总线尚未启动");
+        }
+        return s;
+    }
+
+    // 发布一次点击。只能由同一个线程调用。
+    public void publish(int buttonId) {
+        Started started = started();
+        if (!running) {
+            throw new IllegalStateException("事件总线已关闭");
+        }
+        if (buttonId < 0 || buttonId >= started.buttons.length) {
+            throw new IndexOutOfBoundsException("未注册的按钮：" + buttonId);
+        }
+        long sequence = next++;
+        long wrap = sequence - ring.length;
+        if (cachedGate < wrap) {
+            cachedGate = awaitGate(started.processors, wrap);
+        }
+        ClickEvent event = ring[(int) sequence & mask];
+        event.buttonId = buttonId;
+        if (recordLatency) {
+            event.publishedNanos = System.nanoTime();
+        }
+        cursor.set(sequence);
+    }
+
+    // 阻塞直到已发布的事件全部处理完
+    public void awaitProcessed() {
+        awaitGate(started().processors, cursor.get());
+    }
+
+    // 等到所有处理线程都处理到 target，返回此时最慢的序号。处理线程已经退出、又没处理到 target 时抛出异常。
+    private long awaitGate(Processor[] processors, long target) {
+        int spins = 0;
+        long min;
+        while ((min = minProcessed(processors)) < target) {
+            for (Processor processor : processors) {
+                if (!processor.isAlive() && processor.sequence.get() < target) {
+                    throw new IllegalStateException("处理线程 " + processor.getName() + " 已停止", processor.failure);
+                }
+            }
+            waitStrategy.idle(spins++);
+        }
+        return min;
+    }
+
+    // onClick() 抛出异常的次数
+    public long failures() {
+        return failures.sum();
+    }
+
+    // 最近一次 onClick() 抛出的异常，没有时为 null
+    public RuntimeException lastFailure() {
+        return lastFailure;
+    }
+
+    public long published() {
+        return cursor.get() + 1;
+    }
+
+    // 发布到开始调用 onClick() 之间延迟的分位数，包括在同一批里排在前面的事件的处理时间（纳秒，按 2 的幂取上界），需要开启 recordLatency
+    public long latencyPercentile(double p) {
+        long total = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            total += latency.get(i);
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += latency.get(i);
+            if (seen >= rank && seen > 0) {
+                return 1L << (i + 1);
+            }
+        }
+        return 0;
+    }
+
+    // 处理完剩余事件后停止处理线程
+    @Override
+    public void close() {
+        running = false;
+        Started s = started;
+        if (s == null) {
+            return;
+        }
+        for (Processor processor : s.processors) {
+            try {
+                processor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static long minProcessed(Processor[] processors) {
+        long min = Long.MAX_VALUE;
+        for (Processor processor : processors) {
+            min = Math.min(min, processor.sequence.get());
+        }
+        return min;
+    }
+
+    private static final class Started {
+        final Button[] buttons;
+        final Processor[] processors;
+
+        Started(Button[] buttons, Processor[] processors) {
+            this.buttons = buttons;
+            this.processors = processors;
+        }
+    }
+
+    private final class Processor extends Thread {
+        private final int partition;
+        private final Button[] buttons;
+        private final Sequence sequence = new Sequence();
+        // 每个处理线程自己的直方图，批处理结束时再合并，避免热路径上的共享写
+        private final long[] histogram = new long[LATENCY_BUCKETS];
+        // 处理线程意外退出的原因
+        private volatile Throwable failure;
+
+        Processor(int partition, Button[] buttons) {
+            super("click-processor-" + partition);
+            this.partition = partition;
+            this.buttons = buttons;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        private void process() {
+            long nextSequence = 0;
+            int spins = 0;
+            for (; ; ) {
+                long available = cursor.get();
+                if (available >= nextSequence) {
+                    for (long s = nextSequence; s <= available; s++) {
+                        ClickEvent event = ring[(int) s & mask];
+                        int buttonId = event.buttonId;
+                        if (buttonId % processorCount == partition) {
+                            if (recordLatency) {
+                                long delay = Math.max(1, System.nanoTime() - event.publishedNanos);
+                                histogram[Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(delay))]++;
+                            }
+                            try {
+                                buttons[buttonId].onClick();
+                            } catch (RuntimeException e) {
+                                // 一个按钮出错不影响其他事件，序号照常推进
+                                failures.increment();
+                                lastFailure = e;
+                            }
+                        }
+                    }
+                    sequence.set(available);
+                    nextSequence = available + 1;
+                    spins = 0;
+                    if (recordLatency) {
+                        mergeHistogram();
+                    }
+                } else if (!running) {
+                    // running 在最后一次发布之后才被置为 false，这里再读一次 cursor 就不会漏掉事件
+                    if (cursor.get() < nextSequence) {
+                        return;
+                    }
+                } else {
+                    waitStrategy.idle(spins++);
+                }
+            }
+        }
+
+        private void mergeHistogram() {
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                if (histogram[i] != 0) {
+                    latency.addAndGet(i, histogram[i]);
+                    histogram[i] = 0;
+                }
+            }
+        }
+    }
+}
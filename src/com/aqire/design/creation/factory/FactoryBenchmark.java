@@ -0,0 +1,192 @@
+package com.aqire.design.creation.factory;
+
+import com.aqire.design.bench.Bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工厂方法模式基准测试
+ * <p>
+ * 对比 Dialog.render() 在三种产品复用方式下的吞吐量和每次渲染的分配字节数
+ * （为了不让控制台输出掩盖差异，这里用不打印的按钮），以及在几千个产品 key 上按 key 创建
+ * 产品时，equals 判断链、反射与 FactoryRegistry 的开销，同步 println 与 AsyncRenderSink 的对比，
+ * 以及 ClickEventBus 在不同等待策略下的吞吐量和延迟。
+ * <p>
+ * 运行：java com.aqire.design.creation.factory.FactoryBenchmark [预热毫秒] [测量毫秒]
+ *
+ * @date 2026/10/17 9:00
+ * --------------------------------------------
+ */
+public class FactoryBenchmark {
+    static final int[] THREADS = {1, 4};
+    static final int DISPATCH_KEYS = 2000;
+    static final int BUS_BUTTONS = 1000;
+    static final int BUS_EVENTS = 5_000_000;
+
+    public static void main(String[] args) {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        System.out.println(Bench.header());
+        for (int threads : THREADS) {
+            for (Dialog.ProductReuse reuse : Dialog.ProductReuse.values()) {
+                Dialog dialog = new SilentDialog(reuse);
+                System.out.println(Bench.measure("render." + reuse, threads, warmup, measure, () -> {
+                    dialog.render();
+                    return dialog;
+                }));
+            }
+        }
+
+        dispatch(warmup, measure);
+        sinks(warmup, measure);
+        eventBus();
+    }
+
+    // 点击事件总线：不同等待策略、不同处理线程数下每秒处理的事件数和发布到处理的延迟
+    static void eventBus() {
+        System.out.println(String.format("%-28s %4s %16s %10s %10s", "benchmark", "proc", "events/s", "p50 ns", "p99 ns"));
+        for (ClickEventBus.WaitStrategy wait : ClickEventBus.WaitStrategy.values()) {
+            for (int processors = 1; processors <= 2; processors++) {
+                try (ClickEventBus bus = new ClickEventBus(1 << 14, processors, wait, true)) {
+                    Dialog[] dialogs = {new SilentDialog(Dialog.ProductReuse.NONE), new SilentDialog(Dialog.ProductReuse.POOLED)};
+                    for (int i = 0; i < BUS_BUTTONS; i++) {
+                        bus.register(dialogs[i % dialogs.length].createButton());
+                    }
+                    bus.start();
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < BUS_EVENTS; i++) {
+                        bus.publish(i % BUS_BUTTONS);
+                    }
+                    bus.awaitProcessed();
+                    long nanos = System.nanoTime() - t0;
+                    System.out.println(String.format("%-28s %4d %16.0f %10d %10d", "bus." + wait, processors,
+                            BUS_EVENTS * 1e9 / nanos, bus.latencyPercentile(0.5), bus.latencyPercentile(0.99)));
+                }
+            }
+        }
+    }
+
+    // 输出：同步 println 与异步批量输出（两种背压策略），输出到丢弃内容的流，只比较锁和拷贝的开销
+    static void sinks(long warmup, long measure) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.out.println(Bench.header());
+        for (int threads : THREADS) {
+            RenderSink direct = RenderSink.direct(discard);
+            System.out.println(Bench.measure("sink.direct", threads, warmup, measure, () -> {
+                direct.println("Window button is rendered.");
+                return direct;
+            }));
+            for (AsyncRenderSink.Backpressure backpressure : AsyncRenderSink.Backpressure.values()) {
+                try (AsyncRenderSink async = new AsyncRenderSink(discard, 1 << 14, 256, backpressure)) {
+                    System.out.println(Bench.measure("sink.async." + backpressure, threads, warmup, measure, () -> {
+                        async.println("Window button is rendered.");
+                        return async;
+                    }));
+                    async.flush();
+                    if (async.dropped() > 0) {
+                        System.out.println("  dropped " + async.dropped());
+                    }
+                }
+            }
+        }
+    }
+
+    // 按 key 创建产品：原来的 equals 判断链、反射、完美哈希注册表（Supplier / LambdaMetafactory 绑定）
+    static void dispatch(long warmup, long measure) {
+        String[] keys = new String[DISPATCH_KEYS];
+        Map<String, Constructor<? extends Dialog>> constructors = new HashMap<>();
+        FactoryRegistry.Builder<Dialog> suppliers = FactoryRegistry.builder();
+        FactoryRegistry.Builder<Dialog> bound = FactoryRegistry.builder();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "product-" + i;
+            try {
+                constructors.put(keys[i], WindowDialog.class.getDeclaredConstructor());
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            suppliers.register(keys[i], WindowDialog::new);
+            bound.register(keys[i], MethodHandles.lookup(), WindowDialog.class);
+        }
+        FactoryRegistry<Dialog> supplierRegistry = suppliers.build();
+        FactoryRegistry<Dialog> boundRegistry = bound.build();
+        int[] next = new int[1];
+
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("dispatch.equalsChain", 1, warmup, measure,
+                () -> equalsChain(keys, keys[next[0]++ % keys.length])));
+        System.out.println(Bench.measure("dispatch.reflection", 1, warmup, measure, () -> {
+            try {
+                return constructors.get(keys[next[0]++ % keys.length]).newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        System.out.println(Bench.measure("dispatch.registry", 1, warmup, measure,
+                () -> supplierRegistry.create(keys[next[0]++ % keys.length])));
+        System.out.println(Bench.measure("dispatch.registryBound", 1, warmup, measure,
+                () -> boundRegistry.create(keys[next[0]++ % keys.length])));
+        System.out.println(Bench.measure("dispatch.unknown", 1, warmup, measure, () -> {
+            try {
+                return boundRegistry.create("unknown");
+            } catch (FactoryRegistry.UnknownProductException e) {
+                return e;
+            }
+        }));
+    }
+
+    // 与 Application.init 原来的写法相同：逐个 equals 比较，找不到时抛出带调用栈的异常
+    static Dialog equalsChain(String[] keys, String key) {
+        for (String candidate : keys) {
+            if (candidate.equals(key)) {
+                return new WindowDialog();
+            }
+        }
+        throw new IllegalArgumentException("错误！未知的操作系统。");
+    }
+
+    // 带一点状态的按钮，模拟真实产品
+    static class SilentButton implements Button {
+        private int clicks;
+        private int renders;
+
+        @Override
+        public void onClick() {
+            clicks++;
+        }
+
+        @Override
+        public void render() {
+            renders++;
+        }
+
+        @Override
+        public void reset() {
+            clicks = 0;
+            renders = 0;
+        }
+    }
+
+    static class SilentDialog extends Dialog {
+        private final ProductReuse reuse;
+
+        SilentDialog(ProductReuse reuse) {
+            this.reuse = reuse;
+        }
+
+        @Override
+        Button createButton() {
+            return new SilentButton();
+        }
+
+        @Override
+        ProductReuse productReuse() {
+            return reuse;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.aqire.design.creation.factory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 产品工厂注册表
+ * <p>
+ * 用来代替按字符串逐个 equals 比较再 new 的分发方式。注册完成后 build() 生成一张不可变的
+ * 完美哈希表：每个 key 都有唯一的槽位，查找只需两次数组访问和一次 equals，与 key 的数量无关。
+ * 按类注册时用 LambdaMetafactory 把无参构造函数绑定成 Supplier，创建开销与直接 new 相同。
+ * 未知的 key 抛出不收集调用栈的 {@link UnknownProductException}。
+ * 某个桶在 {@link #MAX_SEED_ATTEMPTS} 个种子内都找不到无冲突的放法，或者 hashCode 大量相同、
+ * 某个桶超过 {@link #MAX_BUCKET_KEYS} 个 key、第二级槽位总数超过 key 数的 {@link #MAX_SLOTS_PER_KEY} 倍时
+ * （只有恶意构造或哈希很差的 key 才会出现），放弃完美哈希，整张表退化为普通的 HashMap 查找，内存仍是 O(n)。
+ *
+ * @date 2026/10/17 10:00
+ * --------------------------------------------
+ */
+final class FactoryRegistry<T> {
+    // 每个桶最多尝试的种子数
+    static final int MAX_SEED_ATTEMPTS = 1 << 12;
+    // 一个桶最多容纳的 key 数，桶内槽位数是它的平方
+    static final int MAX_BUCKET_KEYS = 64;
+    // 第二级槽位总数与 key 数之比的上限，正常的 key 期望值约为 2
+    static final int MAX_SLOTS_PER_KEY = 8;
+
+    private final int[] bucketStart;
+    private final int[] bucketSize;
+    private final int[] bucketSeed;
+    private final String[] keys;
+    private final Supplier<? extends T>[] factories;
+    private final int size;
+    // 完美哈希构建失败时使用的普通查找表，否则为 null
+    private final Map<String, Supplier<? extends T>> fallback;
+
+    private FactoryRegistry(int[] bucketStart, int[] bucketSize, int[] bucketSeed,
+                            String[] keys, Supplier<? extends T>[] factories, int size) {
+        this.size = size;
+        this.bucketStart = bucketStart;
+        this.bucketSize = bucketSize;
+        this.bucketSeed = bucketSeed;
+        this.keys = keys;
+        this.factories = factories;
+        this.fallback = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private FactoryRegistry(Map<String, Supplier<? extends T>> fallback) {
+        this.size = fallback.size();
+        this.bucketStart = new int[0];
+        this.bucketSize = new int[0];
+        this.bucketSeed = new int[0];
+        this.keys = new String[0];
+        this.factories = (Supplier<? extends T>[]) new Supplier<?>[0];
+        this.fallback = fallback;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    // 创建 key 对应的产品，未注册的 key 抛出 UnknownProductException
+    public T create(String key) {
+        Supplier<? extends T> factory = factory(key);
+        if (factory == null) {
+            throw new UnknownProductException(key);
+        }
+        return factory.get();
+    }
+
+    public boolean contains(String key) {
+        return factory(key) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 是否使用了完美哈希，退化为普通查找表时返回 false
+    public boolean isPerfect() {
+        return fallback == null;
+    }
+
+    private Supplier<? extends T> factory(String key) {
+        if (key == null) {
+            return null;
+        }
+        if (fallback != null) {
+            return fallback.get(key);
+        }
+        int h = key.hashCode();
+        int bucket = (mix(h, 0) & Integer.MAX_VALUE) % bucketStart.length;
+        int size = bucketSize[bucket];
+        if (size == 0) {
+            return null;
+        }
+        int slot = bucketStart[bucket] + (hash(key, bucketSeed[bucket]) & Integer.MAX_VALUE) % size;
+        return key.equals(keys[slot]) ? factories[slot] : null;
+    }
+
+    // 第二级使用带种子的字符哈希，hashCode 相同的不同 key 也能被分开
+    private static int hash(String key, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        return mix(h, seed);
+    }
+
+    private static int mix(int h, int seed) {
+        h ^= seed * 0x9E3779B9;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    // 未知产品。产品 key 由外部输入决定时会频繁出现，所以不收集调用栈。
+    static final class UnknownProductException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+
+        UnknownProductException(String key) {
+            super("错误！未知的产品：" + key, null, false, false);
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    static final class Builder<T> {
+        private final Map<String, Supplier<? extends T>> registered = new LinkedHashMap<>();
+        // 同一个类只绑定一次，多个 key 共用同一个 Supplier 实现类
+        private final Map<Class<?>, Supplier<? extends T>> bound = new HashMap<>();
+
+        public Builder<T> register(String key, Supplier<? extends T> factory) {
+            if (key == null || factory == null) {
+                throw new IllegalArgumentException("产品 key 和工厂都不能为 null：" + key);
+            }
+            if (registered.putIfAbsent(key, factory) != null) {
+                throw new IllegalArgumentException("产品已注册：" + key);
+            }
+            return this;
+        }
+
+        // 按类注册。lookup 需要能访问 type 的无参构造函数，通常传调用方的 MethodHandles.lookup()。
+        public Builder<T> register(String key, MethodHandles.Lookup lookup, Class<? extends T> type) {
+            Supplier<? extends T> factory = bound.get(type);
+            if (factory == null) {
+                factory = bindConstructor(lookup, type);
+                bound.put(type, factory);
+            }
+            return register(key, factory);
+        }
+
+        // 两级完美哈希：第一级把 key 分到 n 个桶里，每个桶内的 k 个 key 放进 k*k 个槽位，
+        // 并为桶找一个让桶内没有冲突的种子。总槽位数的期望值是 O(n)。
+        @SuppressWarnings("unchecked")
+        public FactoryRegistry<T> build() {
+            int n = Math.max(1, registered.size());
+            List<List<String>> buckets = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                buckets.add(new ArrayList<>(2));
+            }
+            for (String key : registered.keySet()) {
+                buckets.get((mix(key.hashCode(), 0) & Integer.MAX_VALUE) % n).add(key);
+            }
+            // 先检查槽位数，hashCode 相同的 key 全落进一个桶时不会按平方分配内存
+            long slotCount = 0;
+            for (List<String> bucket : buckets) {
+                if (bucket.size() > MAX_BUCKET_KEYS) {
+                    return new FactoryRegistry<>(new HashMap<>(registered));
+                }
+                slotCount += (long) bucket.size() * bucket.size();
+            }
+            if (slotCount > (long) MAX_SLOTS_PER_KEY * n) {
+                return new FactoryRegistry<>(new HashMap<>(registered));
+            }
+            int[] bucketStart = new int[n];
+            int[] bucketSize = new int[n];
+            int[] bucketSeed = new int[n];
+            List<String> keys = new ArrayList<>();
+            for (int b = 0; b < n; b++) {
+                List<String> bucket = buckets.get(b);
+                int size = bucket.size() * bucket.size();
+                bucketStart[b] = keys.size();
+                bucketSize[b] = size;
+                String[] slots = new String[size];
+                if (size > 0) {
+                    int seed = seed(bucket, slots);
+                    if (seed == 0) {
+                        return new FactoryRegistry<>(new HashMap<>(registered));
+                    }
+                    bucketSeed[b] = seed;
+                }
+                keys.addAll(Arrays.asList(slots));
+            }
+            String[] keyArray = keys.toArray(new String[0]);
+            Supplier<? extends T>[] factories = (Supplier<? extends T>[]) new Supplier<?>[keyArray.length];
+            for (int i = 0; i < keyArray.length; i++) {
+                if (keyArray[i] != null) {
+                    factories[i] = registered.get(keyArray[i]);
+                }
+            }
+            return new FactoryRegistry<>(bucketStart, bucketSize, bucketSeed, keyArray, factories, registered.size());
+        }
+
+        // 找一个让桶内没有冲突的种子并把 key 放进 slots，尝试 MAX_SEED_ATTEMPTS 次仍失败时返回 0
+        private static int seed(List<String> bucket, String[] slots) {
+            for (int seed = 1; seed <= MAX_SEED_ATTEMPTS; seed++) {
+                Arrays.fill(slots, null);
+                if (place(bucket, slots, seed)) {
+                    return seed;
+                }
+            }
+            return 0;
+        }
+
+        private static boolean place(List<String> bucket, String[] slots, int seed) {
+            for (String key : bucket) {
+                int slot = (hash(key, seed) & Integer.MAX_VALUE) % slots.length;
+                if (slots[slot] != null) {
+                    return false;
+                }
+                slots[slot] = key;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Supplier<T> bindConstructor(MethodHandles.Lookup lookup, Class<? extends T> type) {
+            try {
+                MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                        constructor, MethodType.methodType(type));
+                return (Supplier<T>) site.getTarget().invokeExact();
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException("无法绑定 " + type.getName() + " 的无参构造函数", e);
+            } catch (Throwable e) {
+                throw new IllegalStateException("无法绑定 " + type.getName() + " 的无参构造函数", e);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.aqire.design.creation.factory;
 
+import java.util.ArrayDeque;
+
 /**
  * 工厂方法模式
  *
@@ -12,24 +14,97 @@ interface Button {
     void onClick();
 
     void render();
+
+    // 有状态的产品在放回对象池前重置自身状态，无状态的产品不需要实现。
+    default void reset() {
+    }
 }
 
 // 创建者类声明的工厂方法必须返回一个产品类的对象。创建者的子类通常会提供
 // 该方法的实现。
 abstract class Dialog {
 
+    // 产品的复用方式：NONE 每次都调用工厂方法新建；SHARED 只创建一次，所有调用共享，
+    // 适合无状态的产品；POOLED 从每个线程各自的有界对象池中借用，用完重置后归还，
+    // 适合有状态的产品。
+    enum ProductReuse {
+        NONE, SHARED, POOLED
+    }
+
+    // POOLED 模式的对象池按具体创建者类划分，同一个类的所有对话框在同一个线程上共用一个池。
+    // 只有第一次以 POOLED 模式借用时才为这个类创建 ThreadLocal，NONE 和 SHARED 模式没有任何额外分配。
+    private static final ClassValue<ThreadLocal<ArrayDeque<Button>>> POOLS =
+            new ClassValue<ThreadLocal<ArrayDeque<Button>>>() {
+                @Override
+                protected ThreadLocal<ArrayDeque<Button>> computeValue(Class<?> type) {
+                    return ThreadLocal.withInitial(ArrayDeque::new);
+                }
+            };
+
+    private volatile Button shared;
+
     // 创建者还可提供一些工厂方法的默认实现。
     abstract Button createButton();
 
+    // 具体创建者按自己产品的特点重写，默认不复用。
+    ProductReuse productReuse() {
+        return ProductReuse.NONE;
+    }
+
+    // POOLED 模式下每个线程最多保留的产品数量。同一个类的对话框应返回相同的值。
+    int poolCapacity() {
+        return 4;
+    }
+
     // 请注意，创建者的主要职责并非是创建产品。其中通常会包含一些核心业务
     // 逻辑，这些逻辑依赖于由工厂方法返回的产品对象。子类可通过重写工厂方
     // 法并使其返回不同类型的产品来间接修改业务逻辑。
     public void render() {
-        // 调用工厂方法创建一个产品对象。
-        Button button = createButton();
-        // 现在使用产品。
-        button.onClick();
-        button.render();
+        // 调用工厂方法创建（或复用）一个产品对象。
+        Button button = obtainButton();
+        try {
+            // 现在使用产品。
+            button.onClick();
+            button.render();
+        } finally {
+            releaseButton(button);
+        }
+    }
+
+    Button obtainButton() {
+        switch (productReuse()) {
+            case SHARED:
+                Button button = shared;
+                if (button == null) {
+                    synchronized (this) {
+                        button = shared;
+                        if (button == null) {
+                            shared = button = createButton();
+                        }
+                    }
+                }
+                return button;
+            case POOLED:
+                Button pooled = pool().pollLast();
+                return pooled != null ? pooled : createButton();
+            default:
+                return createButton();
+        }
+    }
+
+    void releaseButton(Button button) {
+        if (productReuse() != ProductReuse.POOLED) {
+            return;
+        }
+        ArrayDeque<Button> buttons = pool();
+        if (buttons.size() < poolCapacity()) {
+            button.reset();
+            buttons.addLast(button);
+        }
+    }
+
+    private ArrayDeque<Button> pool() {
+        return POOLS.get(getClass()).get();
     }
 }
 
@@ -39,13 +114,13 @@ class WindowButton implements Button {
     // 绑定本地操作系统点击事件。
     @Override
     public void onClick() {
-        System.out.println("Window button is clicked.");
+        RenderSink.current().println("Window button is clicked.");
     }
 
     // 根据 Windows 样式渲染按钮。
     @Override
     public void render() {
-        System.out.println("Window button is rendered.");
+        RenderSink.current().println("Window button is rendered.");
     }
 }
 
@@ -53,12 +128,12 @@ class WebButton implements Button {
 
     @Override
     public void onClick() {
-        System.out.println("Web button is clicked.");
+        RenderSink.current().println("Web button is clicked.");
     }
 
     @Override
     public void render() {
-        System.out.println("Web button is rendered.");
+        RenderSink.current().println("Web button is rendered.");
     }
 }
 
@@ -69,6 +144,12 @@ class WindowDialog extends Dialog {
     Button createButton() {
         return new WindowButton();
     }
+
+    // 按钮没有状态，整个对话框共享一个。
+    @Override
+    ProductReuse productReuse() {
+        return ProductReuse.SHARED;
+    }
 }
 
 class WebDialog extends Dialog {
@@ -77,20 +158,25 @@ class WebDialog extends Dialog {
     Button createButton() {
         return new WebButton();
     }
+
+    @Override
+    ProductReuse productReuse() {
+        return ProductReuse.SHARED;
+    }
 }
 
 
 class Application {
+    // 操作系统到具体创建者的映射，启动时构建一次，之后的查找与注册数量无关。
+    private static final FactoryRegistry<Dialog> DIALOGS = FactoryRegistry.<Dialog>builder()
+            .register("window", WindowDialog::new)
+            .register("web", WebDialog::new)
+            .build();
+
     private Dialog dialog;
 
-    private Application init(String os) throws Exception {
-        if ("window".equals(os)) {
-            dialog = new WindowDialog();
-        } else if ("web".equals(os)) {
-            dialog = new WebDialog();
-        } else {
-            throw new Exception("错误！未知的操作系统。");
-        }
+    private Application init(String os) {
+        dialog = DIALOGS.create(os);
         return this;
     }
 
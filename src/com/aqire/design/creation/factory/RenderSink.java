@@ -0,0 +1,62 @@
+package com.aqire.design.creation.factory;
+
+import java.io.PrintStream;
+
+/**
+ * 产品输出目标
+ * <p>
+ * 按钮的 render()、onClick() 不直接调用 System.out.println，而是写到当前的 RenderSink。
+ * 默认的实现同步打印到控制台；高负载时可以换成 {@link AsyncRenderSink}，
+ * 把输出先放进无锁环形缓冲区，再由后台线程批量写出，避免所有线程争抢控制台的锁。
+ *
+ * @date 2026/10/17 11:00
+ * --------------------------------------------
+ */
+interface RenderSink {
+
+    void println(String line);
+
+    // 阻塞直到之前写入的内容都已输出
+    void flush();
+
+    static RenderSink current() {
+        return Holder.current;
+    }
+
+    // 切换当前输出目标，返回原来的输出目标
+    static RenderSink use(RenderSink sink) {
+        RenderSink previous = Holder.current;
+        Holder.current = sink;
+        return previous;
+    }
+
+    static RenderSink direct(PrintStream out) {
+        return new Direct(out);
+    }
+
+    final class Holder {
+        private static volatile RenderSink current = new Direct(System.out);
+
+        private Holder() {
+        }
+    }
+
+    // 同步输出，每一行都直接写入
+    final class Direct implements RenderSink {
+        private final PrintStream out;
+
+        Direct(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void println(String line) {
+            out.println(line);
+        }
+
+        @Override
+        public void flush() {
+            out.flush();
+        }
+    }
+}
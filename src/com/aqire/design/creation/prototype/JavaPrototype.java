@@ -1,5 +1,11 @@
 package com.aqire.design.creation.prototype;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -14,9 +20,29 @@ import java.util.Objects;
 
 // 基础原型
 abstract class Shape {
-    public int x;
-    public int y;
-    public String color;
+    private static final VarHandle SNAPSHOT;
+
+    static {
+        try {
+            SNAPSHOT = MethodHandles.lookup().findVarHandle(Shape.class, "snapshot", Shape.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // 形状的数值直接放在对象里，clone() 只分配一个对象。
+    // 子类只需声明字段，clone() 可以用 PrototypeEngine 生成的复制器，不必手写复制构造函数。
+    private int x;
+    private int y;
+    private String color;
+    // 懒克隆读取数值的来源。非 null 时数值以它为准，第一次写入前先把数值复制到自己的字段里（写时复制）。
+    // base 总是一个冻结的形状，之后不会再被修改，所以任意多个懒克隆、任意多个线程都可以同时读取它。
+    private Shape base;
+    // 以下字段是对象自身的状态，不是形状的数值，PrototypeEngine 复制时跳过 transient 字段。
+    // 懒克隆可变的源对象时使用的冻结快照，源对象第一次写入时丢弃，由 SNAPSHOT 发布给其他线程。
+    private transient Shape snapshot;
+    // 冻结标记会被其他线程读取（驻留池里的规范实例、懒克隆的快照），用 volatile 保证可见
+    private transient volatile boolean frozen;
 
     // 常规构造函数。
     public Shape() {
@@ -25,21 +51,134 @@ abstract class Shape {
     // 原型构造函数。使用已有对象的数值来初始化一个新对象。
     public Shape(Shape target) {
         if (target != null) {
-            this.x = target.x;
-            this.y = target.y;
-            this.color = target.color;
+            this.x = target.getX();
+            this.y = target.getY();
+            this.color = target.getColor();
+        }
+    }
+
+    // 读取时使用的对象：懒克隆还没写入过时是 base，否则是自己。
+    final Shape values() {
+        Shape b = base;
+        return b != null ? b : this;
+    }
+
+    // 写入前的检查：冻结的对象不能写；懒克隆先把数值复制到自己的字段里；
+    // 已经给懒克隆用过的快照作废，之后的懒克隆重新取快照。
+    final Shape writable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("形状已冻结，不能修改");
         }
+        Shape b = base;
+        if (b != null) {
+            load(b);
+            base = null;
+        }
+        if (snapshot != null) {
+            snapshot = null;
+        }
+        return this;
+    }
+
+    // 从 source 复制数值字段，子类有自己的数值时需要重写。
+    void load(Shape source) {
+        this.x = source.x;
+        this.y = source.y;
+        this.color = source.color;
+    }
+
+    public int getX() {
+        return values().x;
+    }
+
+    public void setX(int x) {
+        writable().x = x;
+    }
+
+    public int getY() {
+        return values().y;
+    }
+
+    public void setY(int y) {
+        writable().y = y;
+    }
+
+    public String getColor() {
+        return values().color;
+    }
+
+    public void setColor(String color) {
+        writable().color = color;
     }
 
     // clone（克隆）操作会返回一个形状子类。
     public abstract Shape clone();
 
+    // 懒克隆。只新建一个读取冻结数值的对象，直到它第一次写入才真正复制数值，
+    // 适合克隆出来大多只读的场景。源对象没有冻结时先取一份冻结快照，
+    // 源对象再次写入之前的懒克隆都共享这一份快照；源对象本身不会被修改，可以被多个线程同时懒克隆。
+    public Shape lazyClone() {
+        Shape b = base;
+        if (b == null) {
+            b = frozen ? this : snapshot();
+        }
+        return share(b);
+    }
+
+    private Shape snapshot() {
+        Shape s = (Shape) SNAPSHOT.getAcquire(this);
+        if (s == null) {
+            s = clone().freeze();
+            Shape winner = (Shape) SNAPSHOT.compareAndExchangeRelease(this, null, s);
+            if (winner != null) {
+                s = winner;
+            }
+        }
+        return s;
+    }
+
+    // 子类返回一个从 base 读取数值的新实例。
+    abstract Shape share(Shape base);
+
+    // 让一个新建的实例从 base 读取数值
+    final Shape readFrom(Shape base) {
+        this.base = base;
+        return this;
+    }
+
+    // 冻结后不能再修改，可以安全地作为规范实例在各处共享。克隆出来的对象不会被冻结。
+    // 返回冻结的形状，通常就是 this；不能冻结自身的子类（例如享元视图）返回一个冻结的副本，调用方应使用返回值。
+    public Shape freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // 用已有对象的数值覆盖当前对象，对象池复用实例时用它代替重新克隆。
+    public void copyFrom(Shape source) {
+        setX(source.getX());
+        setY(source.getY());
+        setColor(source.getColor());
+    }
+
     // 重写equals
     @Override
     public boolean equals(Object object2) {
         if (!(object2 instanceof Shape)) return false;
         Shape shape2 = (Shape) object2;
-        return shape2.x == x && shape2.y == y && Objects.equals(shape2.color, color);
+        return shape2.getX() == getX() && shape2.getY() == getY() && Objects.equals(shape2.getColor(), getColor());
+    }
+
+    // 与 equals 保持一致，相等的形状必须有相同的哈希值
+    @Override
+    public int hashCode() {
+        int h = getX();
+        h = 31 * h + getY();
+        h = 31 * h + Objects.hashCode(getColor());
+        return h;
     }
 }
 
@@ -48,7 +187,10 @@ abstract class Shape {
 // 成的克隆对象。这可以保持克隆结果的一致。
 
 class Circle extends Shape {
-    public int radius;
+    // 热点路径上把复制器放进 static final 字段，JIT 会把它完全内联
+    private static final MethodHandle COPIER = PrototypeEngine.copier(Circle.class);
+
+    private int radius;
 
     public Circle() {
     }
@@ -57,20 +199,57 @@ class Circle extends Shape {
         // 需要调用父构造函数来复制父类中定义的私有成员变量。
         super(target);
         if (target != null) {
-            this.radius = target.radius;
+            this.radius = target.getRadius();
         }
     }
 
+    @Override
+    void load(Shape source) {
+        super.load(source);
+        this.radius = ((Circle) source).radius;
+    }
+
+    public int getRadius() {
+        return ((Circle) values()).radius;
+    }
+
+    public void setRadius(int radius) {
+        ((Circle) writable()).radius = radius;
+    }
+
+    // 复制全部数值字段；懒克隆还没写入过时复制出来的也是一个读取同一份冻结数值的懒克隆
     @Override
     public Shape clone() {
-        return new Circle(this);
+        try {
+            return (Shape) (Object) COPIER.invokeExact((Object) this);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    Shape share(Shape base) {
+        return new Circle().readFrom(base);
+    }
+
+    @Override
+    public void copyFrom(Shape source) {
+        super.copyFrom(source);
+        setRadius(((Circle) source).getRadius());
     }
 
     @Override
     public boolean equals(Object object2) {
         if (!(object2 instanceof Circle) || !super.equals(object2)) return false;
         Circle shape2 = (Circle) object2;
-        return shape2.radius == radius;
+        return shape2.getRadius() == getRadius();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + getRadius();
     }
 }
 
@@ -80,17 +259,15 @@ public class JavaPrototype {
         List<Shape> shapes = new ArrayList<>();
         List<Shape> shapesCopy = new ArrayList<>();
         Circle circle = new Circle();
-        circle.x = 10;
-        circle.y = 20;
-        circle.radius = 15;
-        circle.color = "red";
+        circle.setX(10);
+        circle.setY(20);
+        circle.setRadius(15);
+        circle.setColor("red");
         shapes.add(circle);
         Circle anotherCircle = (Circle) circle.clone();
         shapes.add(anotherCircle);
 
-        for (Shape shape : shapes) {
-            shapesCopy.add(shape.clone());
-        }
+        shapesCopy.addAll(ShapeCloner.cloneAll(shapes));
 
         for (int i = 0; i < shapes.size(); i++) {
             if (shapes.get(i) != shapesCopy.get(i)) {
@@ -104,5 +281,47 @@ public class JavaPrototype {
                 System.out.println(i + ": Shape objects are the same (booo!)");
             }
         }
+
+        // 从预热好的对象池中借用克隆，用完归还
+        PrototypeRegistry registry = new PrototypeRegistry();
+        registry.register("red circle", circle, 4, 16);
+        try (PrototypeRegistry.Lease pooled = registry.acquire("red circle")) {
+            System.out.println("Pooled clone is identical: " + pooled.shape().equals(circle));
+        }
+
+        // 懒克隆在第一次写入前与源对象共享数值
+        Shape lazy = circle.lazyClone();
+        System.out.println("Lazy clone is identical: " + lazy.equals(circle));
+        lazy.setColor("blue");
+        System.out.println("Lazy clone copied on write: " + "red".equals(circle.getColor()));
+
+        // 相等的形状合并成同一个规范实例
+        ShapeInterner interner = new ShapeInterner(1024);
+        Shape canonical = interner.intern(circle);
+        for (int i = 0; i < 99; i++) {
+            canonical = interner.intern(circle.clone());
+        }
+        System.out.println("Interned shapes are frozen: " + canonical.isFrozen()
+                + ", dedup ratio " + interner.dedupRatio() + ", saved ~" + interner.estimatedBytesSaved() + " bytes");
+
+        // 写入二进制快照，重启时内存映射恢复
+        try {
+            Path file = Files.createTempFile("shapes", ".snapshot");
+            file.toFile().deleteOnExit();
+            ShapeSnapshot.write(file, shapes);
+            List<Shape> restored = ShapeSnapshot.open(file);
+            System.out.println("Snapshot restored identical shapes: " + restored.equals(shapes));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // 大批量克隆放进列式存储，通过享元视图按 Shape 访问
+        ShapeStore store = new ShapeStore();
+        int first = store.addCopies(circle, 1000);
+        ShapeStore.View view = store.view(first);
+        view.setX(42);
+        System.out.println("Store view reads column: " + (store.getX(first) == 42));
+        System.out.println("Store view clone is identical: " + view.clone().equals(view.moveTo(first)));
+        System.out.println("Store view interns as a frozen copy: " + (interner.intern(view).isFrozen() && !view.isFrozen()));
     }
 }
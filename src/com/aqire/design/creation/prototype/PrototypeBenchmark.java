@@ -0,0 +1,192 @@
+package com.aqire.design.creation.prototype;
+
+import com.aqire.design.bench.Bench;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 原型模式基准测试
+ * <p>
+ * <ul>
+ * <li>直接 clone()、写时复制的 lazyClone() 与 PrototypeRegistry 对象池借用/归还的吞吐量和分配字节数；</li>
+ * <li>手写、生成的复制器、反射与 Cloneable 几种复制方式的对比；</li>
+ * <li>批量克隆顺序与并行的交叉点；</li>
+ * <li>快照写入、打开和全量扫描的耗时。</li>
+ * </ul>
+ * <p>
+ * 运行：java com.aqire.design.creation.prototype.PrototypeBenchmark [预热毫秒] [测量毫秒]
+ *
+ * @date 2026/10/16 15:00
+ * --------------------------------------------
+ */
+public class PrototypeBenchmark {
+    static final int[] THREADS = {1, 4};
+
+    static final int SNAPSHOT_SHAPES = 2_000_000;
+    static final int BULK_ROUNDS = 10;
+    // 并行至少要快这么多才算划算
+    static final double CROSSOVER_MARGIN = 0.10;
+
+    public static void main(String[] args) throws IOException {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        Circle template = new Circle();
+        template.setX(10);
+        template.setY(20);
+        template.setRadius(15);
+        template.setColor("red");
+        PrototypeRegistry registry = new PrototypeRegistry();
+        PrototypeRegistry.Pool pool = registry.register("circle", template, 64, 64);
+
+        System.out.println(Bench.header());
+        for (int threads : THREADS) {
+            System.out.println(Bench.measure("clone()", threads, warmup, measure, template::clone));
+            System.out.println(Bench.measure("lazyClone()", threads, warmup, measure, template::lazyClone));
+            System.out.println(Bench.measure("pool.acquire/release", threads, warmup, measure, () -> {
+                PrototypeRegistry.Lease lease = pool.acquire();
+                Shape shape = lease.shape();
+                lease.release();
+                return shape;
+            }));
+        }
+
+        // 复制方式：手写、生成的复制器（常量句柄 / 按类查找）、反射、Cloneable
+        Sample sample = new Sample();
+        sample.x = 10;
+        sample.y = 20;
+        sample.radius = 15;
+        sample.color = "red";
+        Field[] fields = Sample.class.getDeclaredFields();
+        for (Field field : fields) {
+            field.setAccessible(true);
+        }
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("copy.handWritten", 1, warmup, measure, sample::handCopy));
+        System.out.println(Bench.measure("copy.engineConstant", 1, warmup, measure, sample::engineCopy));
+        System.out.println(Bench.measure("copy.engineLookup", 1, warmup, measure, () -> PrototypeEngine.copy(sample)));
+        System.out.println(Bench.measure("copy.reflection", 1, warmup, measure, () -> reflectionCopy(sample, fields)));
+        System.out.println(Bench.measure("copy.cloneable", 1, warmup, measure, sample::clone));
+
+        // 批量克隆：顺序与并行的耗时，找出并行开始划算的交叉点。
+        // 交叉点要求并行比顺序快至少 CROSSOVER_MARGIN，而且更大的规模也都满足，偶然的抖动不算。
+        System.out.println(String.format("%-12s %14s %14s", "shapes", "sequential us", "parallel us"));
+        int crossover = -1;
+        for (int n = 256; n <= 1 << 20; n <<= 2) {
+            Shape[] source = new Shape[n];
+            for (int i = 0; i < n; i++) {
+                source[i] = template.clone();
+            }
+            long sequential = best(() -> ShapeCloner.cloneAll(source, Integer.MAX_VALUE));
+            long parallel = best(() -> ShapeCloner.cloneAll(source, 1024));
+            System.out.println(String.format("%-12d %14.1f %14.1f", n, sequential / 1e3, parallel / 1e3));
+            if (parallel > sequential * (1 - CROSSOVER_MARGIN)) {
+                crossover = -1;
+            } else if (crossover < 0) {
+                crossover = n;
+            }
+        }
+        System.out.println("parallel crossover: " + (crossover < 0 ? "none" : crossover + " shapes"));
+
+        // 快照：写入、打开（恢复就绪）和全量扫描的耗时
+        List<Shape> shapes = new ArrayList<>(SNAPSHOT_SHAPES);
+        for (int i = 0; i < SNAPSHOT_SHAPES; i++) {
+            Shape shape = template.clone();
+            shape.setX(i);
+            shapes.add(shape);
+        }
+        Path file = Files.createTempFile("shapes", ".snapshot");
+        try {
+            System.out.println(Bench.once("snapshot.write " + SNAPSHOT_SHAPES, () -> {
+                try {
+                    ShapeSnapshot.write(file, shapes);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            List<List<Shape>> restored = new ArrayList<>(1);
+            System.out.println(Bench.once("snapshot.open", () -> {
+                try {
+                    restored.add(ShapeSnapshot.open(file));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            System.out.println(Bench.once("snapshot.scan", () -> {
+                long sum = 0;
+                for (Shape shape : restored.get(0)) {
+                    sum += shape.getX();
+                }
+                Bench.consume(sum);
+            }));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // 多跑几轮取最快的一次，减少 JIT 和 GC 的干扰
+    static long best(Runnable task) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < BULK_ROUNDS; i++) {
+            best = Math.min(best, Bench.once("", task).nanos);
+        }
+        return best;
+    }
+
+    static Sample reflectionCopy(Sample source, Field[] fields) {
+        try {
+            Sample copy = Sample.class.getDeclaredConstructor().newInstance();
+            for (Field field : fields) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.set(copy, field.get(source));
+                }
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 与 Circle 数值字段相同的样本类，用来在同一个类上比较各种复制方式
+    static class Sample implements Cloneable {
+        private static final MethodHandle COPIER = PrototypeEngine.copier(Sample.class);
+
+        int x;
+        int y;
+        String color;
+        int radius;
+
+        Sample handCopy() {
+            Sample copy = new Sample();
+            copy.x = x;
+            copy.y = y;
+            copy.color = color;
+            copy.radius = radius;
+            return copy;
+        }
+
+        Sample engineCopy() {
+            try {
+                return (Sample) (Object) COPIER.invokeExact((Object) this);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected Sample clone() {
+            try {
+                return (Sample) super.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.aqire.design.creation.prototype;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 原型注册表
+ * <p>
+ * 按名字保存原型，并为每个原型维护一个预先克隆好的对象池。acquire() 从池里借出一个实例，
+ * 用原型的数值重置后包在 {@link Lease} 里返回；用完调用 Lease.release() 归还。池里每个槽位
+ * 固定拥有一个实例，槽位都借出时退化为普通的 clone()，这样的实例归还时直接丢弃，所以池的大小始终有上限。
+ * 借用状态全部记在池和租约上，Shape 本身不知道自己是否被借出。每次借出都是一个新的租约，
+ * 同一个租约归还两次会抛出 IllegalStateException；即使实例在两次归还之间又被别人借走，
+ * 旧租约也不会把别人正在用的实例放回池里。
+ *
+ * @date 2026/10/16 15:00
+ * --------------------------------------------
+ */
+class PrototypeRegistry {
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    // 注册原型并预先克隆 prewarm 个实例，池容量为 capacity
+    public Pool register(String name, Shape prototype, int prewarm, int capacity) {
+        Objects.requireNonNull(prototype, "prototype");
+        if (prewarm > capacity) {
+            throw new IllegalArgumentException("预热数量不能超过池容量：" + prewarm + " > " + capacity);
+        }
+        Pool pool = new Pool(name, prototype.clone(), capacity);
+        pool.prewarm(prewarm);
+        if (pools.putIfAbsent(name, pool) != null) {
+            throw new IllegalStateException("原型已注册：" + name);
+        }
+        return pool;
+    }
+
+    public Pool pool(String name) {
+        Pool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("未注册的原型：" + name);
+        }
+        return pool;
+    }
+
+    public Lease acquire(String name) {
+        return pool(name).acquire();
+    }
+
+    // 一次借用。shape() 返回借到的实例，release() 之后不能再使用。
+    public static final class Lease implements AutoCloseable {
+        private static final VarHandle SLOT;
+        // 不属于池的实例
+        private static final int UNPOOLED = -1;
+        // 已经归还，和槽位合用一个字段，租约对象只有 24 字节
+        private static final int RELEASED = Integer.MIN_VALUE;
+
+        static {
+            try {
+                SLOT = MethodHandles.lookup().findVarHandle(Lease.class, "slot", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Pool pool;
+        private final Shape shape;
+        // 实例所在的槽位，不属于池时为 UNPOOLED，归还后为 RELEASED
+        private volatile int slot;
+
+        private Lease(Pool pool, int slot, Shape shape) {
+            this.pool = pool;
+            this.slot = slot;
+            this.shape = shape;
+        }
+
+        public Shape shape() {
+            if (slot == RELEASED) {
+                throw new IllegalStateException("租约已经归还原型 " + pool.name + " 的池");
+            }
+            return shape;
+        }
+
+        // 归还实例，同一个租约只能归还一次
+        public void release() {
+            int owned = (int) SLOT.getAndSet(this, RELEASED);
+            if (owned == RELEASED) {
+                throw new IllegalStateException("租约已经归还原型 " + pool.name + " 的池");
+            }
+            if (owned != UNPOOLED) {
+                pool.full.push(owned);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    // 单个原型的对象池。调用方可以直接持有 Pool，省掉按名字查找。
+    // 每个槽位第一次借出时创建自己的实例，之后一直归这个槽位所有。槽位用两个空闲链表管理：
+    // full 里是实例在池中的槽位，fresh 里是还没创建实例的槽位，借出中的槽位不在任何链表里。
+    // acquire/release 都只是一次出栈或入栈，与容量无关。
+    public static final class Pool {
+        private final String name;
+        private final Shape template;
+        // 槽位只由弹出它的线程读写，入栈、出栈时 head 的 CAS 保证了可见性
+        private final Shape[] slots;
+        private final IndexStack full;
+        private final IndexStack fresh;
+
+        Pool(String name, Shape template, int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("池容量必须大于 0：" + capacity);
+            }
+            this.name = name;
+            this.template = template;
+            this.slots = new Shape[capacity];
+            this.full = new IndexStack(capacity);
+            this.fresh = new IndexStack(capacity);
+            for (int i = capacity - 1; i >= 0; i--) {
+                fresh.push(i);
+            }
+        }
+
+        void prewarm(int count) {
+            for (int i = 0; i < count; i++) {
+                int index = fresh.pop();
+                slots[index] = template.clone();
+                full.push(index);
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        // 借出一个与原型数值相同的实例
+        public Lease acquire() {
+            int index = full.pop();
+            if (index >= 0) {
+                Shape shape = slots[index];
+                shape.copyFrom(template);
+                return new Lease(this, index, shape);
+            }
+            index = fresh.pop();
+            if (index >= 0) {
+                Shape shape = template.clone();
+                slots[index] = shape;
+                return new Lease(this, index, shape);
+            }
+            return new Lease(this, Lease.UNPOOLED, template.clone());
+        }
+    }
+
+    // 槽位下标组成的无锁栈（Treiber 栈）。head 的低 32 位是栈顶下标加一（0 表示空栈），
+    // 高 32 位是版本号，每次修改加一，避免下标出栈又入栈之后 CAS 误判成功（ABA）。
+    private static final class IndexStack {
+        private final int[] next;
+        private final AtomicLong head = new AtomicLong();
+
+        IndexStack(int capacity) {
+            this.next = new int[capacity];
+        }
+
+        void push(int index) {
+            for (; ; ) {
+                long h = head.get();
+                next[index] = (int) h;
+                if (head.compareAndSet(h, (((h >>> 32) + 1) << 32) | (index + 1))) {
+                    return;
+                }
+            }
+        }
+
+        // 栈空时返回 -1
+        int pop() {
+            for (; ; ) {
+                long h = head.get();
+                int top = (int) h - 1;
+                if (top < 0) {
+                    return -1;
+                }
+                int below = next[top];
+                if (head.compareAndSet(h, (((h >>> 32) + 1) << 32) | below)) {
+                    return top;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.aqire.design.creation.prototype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量克隆
+ * <p>
+ * 把一组形状逐个深度克隆到预先分配好的目标数组中，保持原有顺序。每个元素调用自己的 clone()，
+ * 所以 Circle 以及以后新增的子类都能得到正确的类型。数量超过阈值时拆分到 fork-join 线程池
+ * 并行执行，低于阈值时顺序执行，避免任务拆分的开销超过收益。阈值可以用 PrototypeBenchmark
+ * 在目标机器上测出的并行交叉点来调整。
+ *
+ * @date 2026/10/16 19:00
+ * --------------------------------------------
+ */
+class ShapeCloner {
+    static final int DEFAULT_THRESHOLD = 4096;
+
+    private ShapeCloner() {
+    }
+
+    public static Shape[] cloneAll(Shape[] source) {
+        return cloneAll(source, DEFAULT_THRESHOLD);
+    }
+
+    public static Shape[] cloneAll(Shape[] source, int threshold) {
+        Shape[] target = new Shape[source.length];
+        cloneInto(source, target, threshold);
+        return target;
+    }
+
+    public static List<Shape> cloneAll(List<? extends Shape> source) {
+        return cloneAll(source, DEFAULT_THRESHOLD);
+    }
+
+    public static List<Shape> cloneAll(List<? extends Shape> source, int threshold) {
+        return new ArrayList<>(Arrays.asList(cloneAll(source.toArray(new Shape[0]), threshold)));
+    }
+
+    // 把 source 的克隆写入 target 的相同下标，target 至少要和 source 一样长
+    public static void cloneInto(Shape[] source, Shape[] target, int threshold) {
+        if (target.length < source.length) {
+            throw new IllegalArgumentException("目标数组太小：" + target.length + " < " + source.length);
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("阈值必须大于 0：" + threshold);
+        }
+        if (source.length <= threshold || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            cloneRange(source, target, 0, source.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new CloneTask(source, target, 0, source.length, threshold));
+        }
+    }
+
+    private static void cloneRange(Shape[] source, Shape[] target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Shape shape = source[i];
+            target[i] = shape == null ? null : shape.clone();
+        }
+    }
+
+    private static final class CloneTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Shape[] source;
+        private final Shape[] target;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        CloneTask(Shape[] source, Shape[] target, int from, int to, int threshold) {
+            this.source = source;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                cloneRange(source, target, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CloneTask(source, target, from, middle, threshold),
+                    new CloneTask(source, target, middle, to, threshold));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.aqire.design.creation.prototype;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 形状驻留池（享元去重）
+ * <p>
+ * 把数值相等的形状合并成同一个冻结的规范实例。池的容量固定，按哈希值直接映射到槽位，
+ * 冲突时新的覆盖旧的，所以内存占用有上限，代价是偶尔会漏掉一次去重。
+ * 同时统计去重比例和估算节省的内存。
+ *
+ * @date 2026/10/16 17:00
+ * --------------------------------------------
+ */
+class ShapeInterner {
+    // 一个 Circle 大约占用的字节数（开启压缩指针的 64 位 JVM）
+    static final int DEFAULT_BYTES_PER_SHAPE = 40;
+
+    private final AtomicReferenceArray<Shape> slots;
+    private final int mask;
+    private final int bytesPerShape;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public ShapeInterner(int capacity) {
+        this(capacity, DEFAULT_BYTES_PER_SHAPE);
+    }
+
+    public ShapeInterner(int capacity, int bytesPerShape) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于 0：" + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.bytesPerShape = bytesPerShape;
+    }
+
+    // 返回与 shape 相等的规范实例。规范实例已冻结，不能修改；
+    // 传入的 shape 没有冻结时，放入池中的是它的冻结副本，调用方手里的对象不受影响。
+    public Shape intern(Shape shape) {
+        lookups.increment();
+        int h = shape.hashCode();
+        int index = (h ^ (h >>> 16)) & mask;
+        Shape current = slots.get(index);
+        if (current != null && current.equals(shape)) {
+            hits.increment();
+            return current;
+        }
+        Shape canonical = shape.isFrozen() ? shape : shape.clone().freeze();
+        slots.set(index, canonical);
+        return canonical;
+    }
+
+    public long lookups() {
+        return lookups.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    // 去重比例：输入的形状数 / 实际保留的规范实例数
+    public double dedupRatio() {
+        long misses = lookups() - hits();
+        return misses == 0 ? 0 : (double) lookups() / misses;
+    }
+
+    // 每次命中都少保留一个对象
+    public long estimatedBytesSaved() {
+        return hits() * bytesPerShape;
+    }
+}
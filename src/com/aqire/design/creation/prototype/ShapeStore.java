@@ -0,0 +1,239 @@
+package com.aqire.design.creation.prototype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式形状存储
+ * <p>
+ * 大量 Circle 克隆对象各自带着对象头、color 引用，再加上 List 里的引用，单个圆要占几十字节。
+ * 这里把 x、y、radius 按列存进 int[]，color 做字典编码存进 char[]，每个圆只占 14 字节，
+ * 批量扫描时也是顺序访问连续内存。需要按 Shape 使用时，通过享元视图 {@link #view(int)} 访问，
+ * 视图的读写直接落在列上。
+ *
+ * @date 2026/10/16 16:00
+ * --------------------------------------------
+ */
+class ShapeStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    // 颜色编码用 char 存，0 留给 null
+    private static final int MAX_COLORS = Character.MAX_VALUE;
+
+    private int size;
+    private int[] xs;
+    private int[] ys;
+    private int[] radii;
+    private char[] colors;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Character> codes = new HashMap<>();
+
+    public ShapeStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShapeStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        xs = new int[capacity];
+        ys = new int[capacity];
+        radii = new int[capacity];
+        colors = new char[capacity];
+        dictionary.add(null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 按原型追加一个克隆，返回它的下标
+    public int add(Circle prototype) {
+        return addCopies(prototype, 1);
+    }
+
+    // 按原型追加 count 个克隆，返回第一个的下标
+    public int addCopies(Circle prototype, int count) {
+        int first = size;
+        ensureCapacity(size + count);
+        int x = prototype.getX();
+        int y = prototype.getY();
+        int radius = prototype.getRadius();
+        char color = encode(prototype.getColor());
+        Arrays.fill(xs, first, first + count, x);
+        Arrays.fill(ys, first, first + count, y);
+        Arrays.fill(radii, first, first + count, radius);
+        Arrays.fill(colors, first, first + count, color);
+        size += count;
+        return first;
+    }
+
+    public int getX(int index) {
+        return xs[check(index)];
+    }
+
+    public void setX(int index, int x) {
+        xs[check(index)] = x;
+    }
+
+    public int getY(int index) {
+        return ys[check(index)];
+    }
+
+    public void setY(int index, int y) {
+        ys[check(index)] = y;
+    }
+
+    public int getRadius(int index) {
+        return radii[check(index)];
+    }
+
+    public void setRadius(int index, int radius) {
+        radii[check(index)] = radius;
+    }
+
+    public String getColor(int index) {
+        return dictionary.get(colors[check(index)]);
+    }
+
+    public void setColor(int index, String color) {
+        colors[check(index)] = encode(color);
+    }
+
+    // 统计圆心落在矩形 [x0, x1) x [y0, y1) 内的圆，只扫描 x、y 两列
+    public int countInside(int x0, int y0, int x1, int y1) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            if (x >= x0 && x < x1 && y >= y0 && y < y1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 返回指向第 index 个圆的享元视图
+    public View view(int index) {
+        return new View(this, check(index));
+    }
+
+    // 按列的容量估算占用的字节数（不含颜色字典）
+    public long estimatedBytes() {
+        return (long) xs.length * (Integer.BYTES * 3 + Character.BYTES);
+    }
+
+    private char encode(String color) {
+        if (color == null) {
+            return 0;
+        }
+        Character code = codes.get(color);
+        if (code == null) {
+            if (dictionary.size() > MAX_COLORS) {
+                throw new IllegalStateException("颜色种类超过上限：" + MAX_COLORS);
+            }
+            code = (char) dictionary.size();
+            dictionary.add(color);
+            codes.put(color, code);
+        }
+        return code;
+    }
+
+    private int check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= xs.length) {
+            return;
+        }
+        int capacity = Math.max(required, xs.length + (xs.length >> 1));
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+    }
+
+    // 享元视图。不使用继承来的数值字段，所有读写都转发到存储的列上；
+    // 调用 moveTo 可以让同一个视图指向另一行，遍历时不必为每行新建对象。
+    static final class View extends Circle {
+        private final ShapeStore store;
+        private int index;
+
+        View(ShapeStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public View moveTo(int index) {
+            this.index = store.check(index);
+            return this;
+        }
+
+        @Override
+        public int getX() {
+            return store.getX(index);
+        }
+
+        @Override
+        public void setX(int x) {
+            store.setX(index, x);
+        }
+
+        @Override
+        public int getY() {
+            return store.getY(index);
+        }
+
+        @Override
+        public void setY(int y) {
+            store.setY(index, y);
+        }
+
+        @Override
+        public String getColor() {
+            return store.getColor(index);
+        }
+
+        @Override
+        public void setColor(String color) {
+            store.setColor(index, color);
+        }
+
+        @Override
+        public int getRadius() {
+            return store.getRadius(index);
+        }
+
+        @Override
+        public void setRadius(int radius) {
+            store.setRadius(index, radius);
+        }
+
+        // 视图克隆出来的是一个独立的普通 Circle
+        @Override
+        public Shape clone() {
+            return new Circle(this);
+        }
+
+        // 视图的读写直接落在列上，本身无法冻结，返回一个冻结的独立副本，视图自己仍然可写
+        @Override
+        public Shape freeze() {
+            return clone().freeze();
+        }
+
+        // 视图的数值在列上，随时可能被改写，懒克隆退化为普通克隆
+        @Override
+        public Shape lazyClone() {
+            return clone();
+        }
+    }
+}
@@ -20,7 +20,7 @@ class LazyMan {
 
     public static synchronized LazyMan getInstance() {
         if (instance == null) {
-            instance = new LazyMan();
+            instance = SingletonTracker.track("LazyMan", SingletonTracker.Kind.LAZY, LazyMan::new);
         }
         return instance;
     }
@@ -37,7 +37,7 @@ class DoubleLock {
         if (singleton == null) {
             synchronized (DoubleLock.class) {
                 if (singleton == null) {
-                    singleton = new DoubleLock();
+                    singleton = SingletonTracker.track("DoubleLock", SingletonTracker.Kind.LAZY, DoubleLock::new);
                 }
             }
         }
@@ -47,7 +47,7 @@ class DoubleLock {
 
 // 饿汉，线程安全，调用效率高，但是不能延时加载
 class Hungry {
-    private static final Hungry instance = new Hungry();
+    private static final Hungry instance = SingletonTracker.track("Hungry", SingletonTracker.Kind.EAGER, Hungry::new);
 
     private Hungry() {
     }
@@ -60,7 +60,8 @@ class Hungry {
 // 静态内部类，线程安全，调用效率高，可以延时加载
 class StaticInside {
     private static class SingletonHolder {
-        private static final StaticInside INSTANCE = new StaticInside();
+        private static final StaticInside INSTANCE =
+                SingletonTracker.track("StaticInside", SingletonTracker.Kind.LAZY, StaticInside::new);
     }
 
     private StaticInside() {
@@ -86,7 +87,7 @@ class EnumSingle {
 
         //私有化枚举的构造函数
         private SingletonEnum() {
-            enumSingle = new EnumSingle();
+            enumSingle = SingletonTracker.track("EnumSingle", SingletonTracker.Kind.EAGER, EnumSingle::new);
         }
 
         public EnumSingle getInstance() {
@@ -100,14 +101,44 @@ class EnumSingle {
     }
 }
 
+// 注册表，线程安全，可以延时加载，首次访问之后读取无锁、无分配，递归初始化会立即报错
+class RegistrySingle {
+    private static final SingletonRegistry.Holder<RegistrySingle> HOLDER =
+            SingletonRegistry.global().register(RegistrySingle.class, RegistrySingle::new);
+
+    private RegistrySingle() {
+    }
+
+    public static RegistrySingle getInstance() {
+        return HOLDER.get();
+    }
+}
+
 public class JavaSingle {
     public static void main(String[] args) {
-        //
+        // 打开初始化开销记录，必须在第一个单例创建之前
+        SingletonTracker.enable();
         System.out.println(LazyMan.getInstance() == LazyMan.getInstance());
         System.out.println(DoubleLock.getInstance() == DoubleLock.getInstance());
         System.out.println(Hungry.getInstance() == Hungry.getInstance());
         System.out.println(StaticInside.getInstance() == StaticInside.getInstance());
         System.out.println(EnumSingle.getInstance() == EnumSingle.getInstance());
+        System.out.println(RegistrySingle.getInstance() == RegistrySingle.getInstance());
+        // 作用域单例
+        System.out.println("----作用域----");
+        ScopedSingleton.PerThread<StringBuilder> perThread = ScopedSingleton.perThread(StringBuilder::new, sb -> sb.setLength(0));
+        System.out.println(perThread.get() == perThread.get());
+        perThread.release();
+        ScopedSingleton<StringBuilder> perScope = ScopedSingleton.perScope(StringBuilder::new, sb -> sb.setLength(0));
+        StringBuilder outer = ScopedSingleton.inScope(() -> perScope.get());
+        StringBuilder inner = ScopedSingleton.inScope(() -> perScope.get());
+        System.out.println(outer != inner);
+        ScopedSingleton.Lease<StringBuilder> perCarrier = ScopedSingleton.perCarrier(StringBuilder::new);
+        String text = perCarrier.with(sb -> {
+            sb.setLength(0);
+            return sb.append("carrier").toString();
+        });
+        System.out.println(text);
         // 反射
         System.out.println("----反射----");
         try {
@@ -125,5 +156,19 @@ public class JavaSingle {
         } catch (InvocationTargetException e) {
             e.printStackTrace();
         }
+        // 启动预热
+        System.out.println("----启动预热----");
+        SingletonRegistry registry = new SingletonRegistry();
+        registry.register("config", Object::new);
+        registry.register("pool", Object::new);
+        registry.register("service", () -> new Object[]{registry.get("config"), registry.get("pool")});
+        new SingletonWarmup(registry)
+                .declare("service", "config", "pool")
+                .start()
+                .join();
+        System.out.println(registry.isInitialized("service"));
+        // 初始化开销
+        System.out.println("----初始化开销----");
+        System.out.print(SingletonTracker.report());
     }
 }
@@ -0,0 +1,283 @@
+package com.aqire.design.creation.single;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 作用域单例
+ * <p>
+ * 其他几种单例都是整个进程共享一个实例。格式化器、临时缓冲区这类有状态的工具对象，
+ * 共享就要加锁，不共享又得每次都新建。这里提供三种作用域：
+ * <ul>
+ * <li>THREAD：每个线程一个实例，用 ThreadLocal 实现。带清理动作时，线程可以用
+ * {@link PerThread#release} 主动交还；已经结束的线程留下的实例在之后新建实例时批量清理。</li>
+ * <li>SCOPE：每个 {@link #inScope} 作用域一个实例，离开作用域时执行清理。</li>
+ * <li>CARRIER：按 CPU 数量分条带的实例池，任意多的线程轮流借用，保留的实例数量有上限，
+ * 适合线程数量巨大、每个线程生命周期很短的场景。实例是借来的，不能带出借用范围，
+ * 所以它不是 ScopedSingleton，而是只能通过 {@link Lease#with} 使用的 {@link Lease}。</li>
+ * </ul>
+ * JDK 17 没有 ScopedValue 和虚拟线程，SCOPE 用线程内的作用域栈模拟，CARRIER 用条带池模拟
+ * “每个载体线程一个”。
+ *
+ * @date 2026/10/16 12:00
+ * --------------------------------------------
+ */
+public abstract class ScopedSingleton<T> {
+
+    public enum Mode {
+        THREAD, SCOPE
+    }
+
+    // 当前线程正在执行的作用域
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    final Supplier<? extends T> factory;
+    final Consumer<? super T> cleaner;
+
+    ScopedSingleton(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+        this.factory = Objects.requireNonNull(factory, "factory");
+        this.cleaner = cleaner;
+    }
+
+    public static <T> PerThread<T> perThread(Supplier<? extends T> factory) {
+        return perThread(factory, null);
+    }
+
+    public static <T> PerThread<T> perThread(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+        return new PerThread<>(factory, cleaner);
+    }
+
+    public static <T> Lease<T> perCarrier(Supplier<? extends T> factory) {
+        return perCarrier(factory, null);
+    }
+
+    public static <T> Lease<T> perCarrier(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+        return new Lease<>(factory, cleaner, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public static <T> ScopedSingleton<T> perScope(Supplier<? extends T> factory) {
+        return perScope(factory, null);
+    }
+
+    public static <T> ScopedSingleton<T> perScope(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+        return new PerScope<>(factory, cleaner);
+    }
+
+    // 打开一个作用域执行 action，结束后按创建的逆序清理作用域内的实例
+    public static void inScope(Runnable action) {
+        inScope(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <V> V inScope(Supplier<V> action) {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        V result;
+        try {
+            result = action.get();
+        } catch (Throwable e) {
+            // action 本身的异常优先，清理时的异常挂在它下面，不能把它盖掉
+            CURRENT.set(scope.parent);
+            try {
+                scope.close();
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        CURRENT.set(scope.parent);
+        scope.close();
+        return result;
+    }
+
+    public abstract Mode mode();
+
+    // 取当前作用域的实例
+    public abstract T get();
+
+    // 在当前作用域的实例上执行 action
+    public <R> R with(Function<? super T, ? extends R> action) {
+        return action.apply(get());
+    }
+
+    T create() {
+        return Objects.requireNonNull(factory.get(), "作用域单例工厂返回了 null");
+    }
+
+    void clean(T instance) {
+        if (cleaner != null) {
+            cleaner.accept(instance);
+        }
+    }
+
+    // 每个线程一个实例。带清理动作时还要记下实例属于哪个线程，线程可以主动交还；
+    // 已经结束的线程留下的实例，在登记的实例数翻倍时扫一遍清理掉，所以扫描的总开销是均摊 O(1) 的，
+    // 留存的实例数也不超过存活线程数的两倍。
+    public static final class PerThread<T> extends ScopedSingleton<T> {
+        private static final int MIN_SWEEP = 64;
+
+        private final ThreadLocal<T> local = new ThreadLocal<>();
+        private final ConcurrentMap<Thread, T> owners;
+        private final AtomicInteger nextSweep = new AtomicInteger(MIN_SWEEP);
+
+        PerThread(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+            super(factory, cleaner);
+            this.owners = cleaner == null ? null : new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public Mode mode() {
+            return Mode.THREAD;
+        }
+
+        @Override
+        public T get() {
+            T instance = local.get();
+            if (instance == null) {
+                instance = create();
+                local.set(instance);
+                if (owners != null) {
+                    owners.put(Thread.currentThread(), instance);
+                    sweep();
+                }
+            }
+            return instance;
+        }
+
+        // 交还当前线程的实例并执行清理，下次 get() 会新建一个
+        public void release() {
+            T instance = local.get();
+            if (instance == null) {
+                return;
+            }
+            local.remove();
+            if (owners != null) {
+                owners.remove(Thread.currentThread(), instance);
+            }
+            clean(instance);
+        }
+
+        private void sweep() {
+            int threshold = nextSweep.get();
+            if (owners.size() < threshold || !nextSweep.compareAndSet(threshold, Integer.MAX_VALUE)) {
+                return;
+            }
+            try {
+                for (Map.Entry<Thread, T> entry : owners.entrySet()) {
+                    if (!entry.getKey().isAlive() && owners.remove(entry.getKey(), entry.getValue())) {
+                        clean(entry.getValue());
+                    }
+                }
+            } finally {
+                nextSweep.set(Math.max(MIN_SWEEP, owners.size() * 2));
+            }
+        }
+    }
+
+    private static final class PerScope<T> extends ScopedSingleton<T> {
+
+        PerScope(Supplier<? extends T> factory, Consumer<? super T> cleaner) {
+            super(factory, cleaner);
+        }
+
+        @Override
+        public Mode mode() {
+            return Mode.SCOPE;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Scope scope = CURRENT.get();
+            if (scope == null) {
+                throw new IllegalStateException("当前线程没有打开作用域，请在 ScopedSingleton.inScope 中调用");
+            }
+            int index = scope.owners.indexOf(this);
+            if (index >= 0) {
+                return (T) scope.instances.get(index);
+            }
+            T instance = create();
+            scope.owners.add(this);
+            scope.instances.add(instance);
+            return instance;
+        }
+    }
+
+    // 按条带借出的实例池。借出的实例只在 with 的回调里有效，所以只提供 with，没有 get。
+    public static final class Lease<T> {
+        private final Supplier<? extends T> factory;
+        private final Consumer<? super T> cleaner;
+        private final AtomicReferenceArray<T> slots;
+        private final int mask;
+
+        Lease(Supplier<? extends T> factory, Consumer<? super T> cleaner, int stripes) {
+            this.factory = Objects.requireNonNull(factory, "factory");
+            this.cleaner = cleaner;
+            int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        // 按线程 id 选一个条带借出实例，用完放回。条带被占用时试一下相邻条带，
+        // 都被占用就临时新建一个，用完如果放不回去就直接丢弃，池里保留的实例永远不超过条带数。
+        public <R> R with(Function<? super T, ? extends R> action) {
+            int i = (int) Thread.currentThread().getId() & mask;
+            T instance = slots.getAndSet(i, null);
+            if (instance == null) {
+                i = (i + 1) & mask;
+                instance = slots.getAndSet(i, null);
+            }
+            if (instance == null) {
+                instance = Objects.requireNonNull(factory.get(), "作用域单例工厂返回了 null");
+            }
+            try {
+                return action.apply(instance);
+            } finally {
+                if (!slots.compareAndSet(i, null, instance) && cleaner != null) {
+                    cleaner.accept(instance);
+                }
+            }
+        }
+    }
+
+    // 一个作用域内创建的实例。一个作用域里的作用域单例通常只有几个，线性查找比哈希表更快。
+    private static final class Scope {
+        final Scope parent;
+        final List<ScopedSingleton<?>> owners = new ArrayList<>(4);
+        final List<Object> instances = new ArrayList<>(4);
+
+        Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        @SuppressWarnings("unchecked")
+        void close() {
+            RuntimeException failure = null;
+            for (int i = owners.size() - 1; i >= 0; i--) {
+                try {
+                    ((ScopedSingleton<Object>) owners.get(i)).clean(instances.get(i));
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
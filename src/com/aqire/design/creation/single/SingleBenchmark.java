@@ -0,0 +1,110 @@
+package com.aqire.design.creation.single;
+
+import com.aqire.design.bench.Bench;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.Supplier;
+
+/**
+ * 单例模式基准测试
+ * <p>
+ * 对 JavaSingle 中各种单例的 getInstance() 做并发对比：
+ * 稳态（已初始化）下的吞吐量、延迟分位数、分配字节数和监视器阻塞次数，
+ * 以及冷启动（首次访问，包含类加载和初始化）时多个线程同时抢第一次调用的延迟。
+ * <p>
+ * 运行：java com.aqire.design.creation.single.SingleBenchmark [预热毫秒] [测量毫秒]
+ *
+ * @date 2026/10/16 10:00
+ * --------------------------------------------
+ */
+public class SingleBenchmark {
+    // 最后一档模拟虚拟线程规模的并发；JDK 17 没有虚拟线程，用大量平台线程代替
+    static final int[] THREADS = {1, 2, 8, 32, 512};
+    static final String[] STRATEGIES = {"LazyMan", "DoubleLock", "Hungry", "StaticInside", "EnumSingle", "RegistrySingle"};
+    static final int COLD_TRIALS = 20;
+
+    public static void main(String[] args) throws Exception {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        System.out.println("---- 稳态 ----");
+        System.out.println(Bench.header());
+        for (int threads : THREADS) {
+            for (String name : STRATEGIES) {
+                System.out.println(Bench.measure(name, threads, warmup, measure, steady(name)));
+            }
+        }
+
+        System.out.println("---- 冷启动（首次访问）----");
+        System.out.println(String.format("%-28s %4s %12s %12s", "benchmark", "thr", "median ns", "max ns"));
+        for (int threads : THREADS) {
+            for (String name : STRATEGIES) {
+                long[] max = new long[COLD_TRIALS];
+                for (int i = 0; i < COLD_TRIALS; i++) {
+                    max[i] = cold(name, threads);
+                }
+                Arrays.sort(max);
+                System.out.println(String.format("%-28s %4d %12d %12d",
+                        name, threads, max[COLD_TRIALS / 2], max[COLD_TRIALS - 1]));
+            }
+        }
+    }
+
+    static Supplier<?> steady(String name) {
+        switch (name) {
+            case "LazyMan":
+                return LazyMan::getInstance;
+            case "DoubleLock":
+                return DoubleLock::getInstance;
+            case "Hungry":
+                return Hungry::getInstance;
+            case "StaticInside":
+                return StaticInside::getInstance;
+            case "EnumSingle":
+                return EnumSingle::getInstance;
+            case "RegistrySingle":
+                return RegistrySingle::getInstance;
+            default:
+                throw new IllegalArgumentException("未知的单例实现：" + name);
+        }
+    }
+
+    // 在一个全新的类加载器中加载单例类（不初始化），让 threads 个线程同时发起第一次
+    // getInstance()，返回最慢线程的耗时。每次试验都换新的加载器，保证真正是冷的。
+    static long cold(String name, int threads) throws Exception {
+        URL location = JavaSingle.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{location}, ClassLoader.getPlatformClassLoader())) {
+            Class<?> type = Class.forName(SingleBenchmark.class.getPackage().getName() + "." + name, false, loader);
+            Method getInstance = type.getDeclaredMethod("getInstance");
+            getInstance.setAccessible(true);
+
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            long[] elapsed = new long[threads];
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                final int index = i;
+                workers[i] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        long t0 = System.nanoTime();
+                        Bench.consume(getInstance.invoke(null));
+                        elapsed[index] = System.nanoTime() - t0;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                workers[i].start();
+            }
+            long max = 0;
+            for (int i = 0; i < threads; i++) {
+                workers[i].join();
+                max = Math.max(max, elapsed[i]);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.aqire.design.creation.single;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * 单例注册表
+ * <p>
+ * 按 key 延时创建实例，并保证每个 key 只创建一次。首次访问之后的读取只有一次
+ * acquire 读，不加锁也不分配对象，用来替代每次调用都要进监视器的懒汉式。
+ * 初始化过程中如果出现自己等自己（递归初始化）或者多个线程互相等待的环，立即抛出
+ * IllegalStateException，而不是永远卡住。
+ *
+ * @date 2026/10/16 11:00
+ * --------------------------------------------
+ */
+public final class SingletonRegistry {
+    private static final SingletonRegistry GLOBAL = new SingletonRegistry();
+
+    // 正在等待某个初始化完成的线程，用于检测跨线程的等待环
+    private static final ConcurrentHashMap<Thread, Initializing> WAITING = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Object, Holder<?>> holders = new ConcurrentHashMap<>();
+
+    public static SingletonRegistry global() {
+        return GLOBAL;
+    }
+
+    // 注册一个 key。同一个 key 重复注册时返回已有的 Holder，调用方可以把它缓存在
+    // static final 字段里，之后的 get() 连哈希查找都省掉。
+    @SuppressWarnings("unchecked")
+    public <T> Holder<T> register(Object key, Supplier<? extends T> factory) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(factory, "factory");
+        Holder<?> holder = holders.get(key);
+        if (holder == null) {
+            holder = holders.computeIfAbsent(key, k -> new Holder<>(k, factory));
+        }
+        return (Holder<T>) holder;
+    }
+
+    // 按 key 取实例，key 必须事先注册过。
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key) {
+        Holder<?> holder = holders.get(key);
+        if (holder == null) {
+            throw new IllegalArgumentException("未注册的单例：" + key);
+        }
+        return (T) holder.get();
+    }
+
+    public <T> T get(Object key, Supplier<? extends T> factory) {
+        return this.<T>register(key, factory).get();
+    }
+
+    public boolean isRegistered(Object key) {
+        return holders.containsKey(key);
+    }
+
+    public boolean isInitialized(Object key) {
+        Holder<?> holder = holders.get(key);
+        return holder != null && holder.isInitialized();
+    }
+
+    // 初始化中的占位标记，记录执行初始化的线程
+    private static final class Initializing {
+        final Thread owner = Thread.currentThread();
+        final CountDownLatch done = new CountDownLatch(1);
+    }
+
+    // 单个 key 的持有者。value 有三种状态：null（未初始化）、Initializing（初始化中）、实例本身。
+    public static final class Holder<T> {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Holder.class, "value", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Object key;
+        private final Supplier<? extends T> factory;
+        @SuppressWarnings("unused")
+        private volatile Object value;
+
+        Holder(Object key, Supplier<? extends T> factory) {
+            this.key = key;
+            this.factory = factory;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Object v = VALUE.getAcquire(this);
+            if (v != null && !(v instanceof Initializing)) {
+                return (T) v;
+            }
+            return slowGet();
+        }
+
+        public boolean isInitialized() {
+            Object v = VALUE.getAcquire(this);
+            return v != null && !(v instanceof Initializing);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T slowGet() {
+            for (; ; ) {
+                Object v = VALUE.getAcquire(this);
+                if (v == null) {
+                    Initializing mine = new Initializing();
+                    if (VALUE.compareAndSet(this, null, mine)) {
+                        return initialize(mine);
+                    }
+                } else if (v instanceof Initializing) {
+                    await((Initializing) v);
+                } else {
+                    return (T) v;
+                }
+            }
+        }
+
+        private T initialize(Initializing mine) {
+            T instance;
+            try {
+                instance = Objects.requireNonNull(SingletonTracker.track(name(key), SingletonTracker.Kind.LAZY, factory),
+                        "单例工厂返回了 null：" + key);
+            } catch (RuntimeException | Error e) {
+                // 初始化失败时回到未初始化状态，等待者会重新尝试
+                VALUE.setRelease(this, null);
+                mine.done.countDown();
+                throw e;
+            }
+            VALUE.setRelease(this, instance);
+            mine.done.countDown();
+            return instance;
+        }
+
+        private static String name(Object key) {
+            return key instanceof Class ? ((Class<?>) key).getSimpleName() : String.valueOf(key);
+        }
+
+        private void await(Initializing pending) {
+            Thread current = Thread.currentThread();
+            if (pending.owner == current) {
+                throw new IllegalStateException("单例递归初始化：" + key);
+            }
+            // 先登记再检查，两个线程同时进入时至少有一个能看到对方的登记。
+            // 沿着 “owner 正在等待谁” 走下去，如果回到当前线程说明出现了等待环。
+            WAITING.put(current, pending);
+            try {
+                int steps = 0;
+                for (Initializing next = pending; next != null && steps++ <= WAITING.size(); next = WAITING.get(next.owner)) {
+                    if (next.owner == current) {
+                        throw new IllegalStateException("单例初始化出现循环等待：" + key);
+                    }
+                }
+                pending.done.await();
+            } catch (InterruptedException e) {
+                current.interrupt();
+                throw new IllegalStateException("等待单例初始化时被中断：" + key, e);
+            } finally {
+                WAITING.remove(current);
+            }
+        }
+    }
+}
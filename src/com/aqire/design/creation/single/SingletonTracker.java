@@ -0,0 +1,223 @@
+package com.aqire.design.creation.single;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 单例初始化开销记录
+ * <p>
+ * 记录每个单例第一次创建时的耗时、所在线程、分配字节数，以及是在哪个单例的初始化过程中
+ * 被牵连创建的（依赖链）。startup 报告按自身耗时排序，给出改为延时加载或启动时并行预热的建议。
+ * 只在实例第一次创建时记录一次，对之后的 getInstance() 没有任何开销。
+ * <p>
+ * 默认关闭，关闭时 track 直接执行初始化，不做任何测量。用 -Daqire.singleton.track=true
+ * 启动，或者在第一个单例创建之前调用 {@link #enable()} 打开。
+ * 记录按单例名字聚合，同一个单例初始化失败后重试只会累加到同一条记录上，
+ * 不同名字的记录最多保留 {@link #MAX_RECORDS} 条，超出的只计数。
+ * <p>
+ * 依赖链只包含同一线程上经过 track 的初始化：没有经过 track 的类初始化、在别的线程上完成的初始化
+ * 都不会出现在链上，它们的耗时算在外层单例的自身耗时里。
+ *
+ * @date 2026/10/16 13:00
+ * --------------------------------------------
+ */
+public final class SingletonTracker {
+
+    // 单例的初始化时机：EAGER 在类初始化时创建，LAZY 在第一次 getInstance() 时创建
+    public enum Kind {
+        EAGER, LAZY
+    }
+
+    // 超过这个自身耗时的单例才会出现在建议里
+    public static final long DEFAULT_THRESHOLD_NANOS = 1_000_000L;
+
+    // 最多保留多少个不同名字的记录
+    public static final int MAX_RECORDS = 1024;
+
+    private static final ConcurrentMap<String, Record> RECORDS = new ConcurrentHashMap<>();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static volatile boolean enabled = Boolean.getBoolean("aqire.singleton.track");
+    private static final ThreadLocal<Deque<Frame>> STACK = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private SingletonTracker() {
+    }
+
+    // 一次初始化的记录
+    public static final class Record {
+        public final String name;
+        public final Kind kind;
+        public final String thread;
+        public final long wallNanos;
+        public final long selfNanos;
+        public final long allocatedBytes;
+        // 从最外层单例到自身的初始化链，例如 [Service, Config, self]
+        public final List<String> chain;
+        // 初始化次数，失败重试时大于 1，耗时和分配字节数是所有次数的总和
+        public final int attempts;
+
+        Record(String name, Kind kind, String thread, long wallNanos, long selfNanos, long allocatedBytes,
+               List<String> chain, int attempts) {
+            this.name = name;
+            this.kind = kind;
+            this.thread = thread;
+            this.wallNanos = wallNanos;
+            this.selfNanos = selfNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.chain = chain;
+            this.attempts = attempts;
+        }
+
+        // 合并同一个单例的两次初始化，线程和依赖链取第一次的
+        Record merge(Record other) {
+            return new Record(name, kind, thread, wallNanos + other.wallNanos, selfNanos + other.selfNanos,
+                    allocatedBytes + other.allocatedBytes, chain, attempts + other.attempts);
+        }
+
+        public boolean isRoot() {
+            return chain.size() == 1;
+        }
+    }
+
+    // 正在初始化的单例，用于计算依赖链和扣除子初始化的耗时
+    private static final class Frame {
+        final String name;
+        long childNanos;
+
+        Frame(String name) {
+            this.name = name;
+        }
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // 执行 init 创建单例，打开记录时同时记录开销
+    public static <T> T track(String name, Kind kind, Supplier<T> init) {
+        if (!enabled) {
+            return init.get();
+        }
+        Deque<Frame> stack = STACK.get();
+        List<String> chain = new ArrayList<>(stack.size() + 1);
+        for (Iterator<Frame> it = stack.descendingIterator(); it.hasNext(); ) {
+            chain.add(it.next().name);
+        }
+        chain.add(name);
+        Frame frame = new Frame(name);
+        stack.push(frame);
+        long bytes0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        try {
+            return init.get();
+        } finally {
+            long wall = System.nanoTime() - t0;
+            long bytes = allocatedBytes() - bytes0;
+            stack.pop();
+            Frame parent = stack.peek();
+            if (parent != null) {
+                parent.childNanos += wall;
+            }
+            add(new Record(name, kind, Thread.currentThread().getName(), wall, wall - frame.childNanos, bytes,
+                    Collections.unmodifiableList(chain), 1));
+        }
+    }
+
+    private static void add(Record record) {
+        if (RECORDS.size() >= MAX_RECORDS && !RECORDS.containsKey(record.name)) {
+            DROPPED.incrementAndGet();
+            return;
+        }
+        RECORDS.merge(record.name, record, Record::merge);
+    }
+
+    public static List<Record> records() {
+        return new ArrayList<>(RECORDS.values());
+    }
+
+    // 因为超过 MAX_RECORDS 而没有保留的初始化次数
+    public static long dropped() {
+        return DROPPED.get();
+    }
+
+    public static void reset() {
+        RECORDS.clear();
+        DROPPED.set(0);
+    }
+
+    public static String report() {
+        return report(DEFAULT_THRESHOLD_NANOS);
+    }
+
+    // 按自身耗时从高到低列出所有单例，并给出建议：
+    // 昂贵的 EAGER 单例建议改为延时加载；昂贵的 LAZY 单例如果不依赖其他单例的初始化，
+    // 建议在启动时并行预热，否则会让第一个请求承担这部分延迟。
+    public static String report(long thresholdNanos) {
+        List<Record> records = records();
+        records.sort(Comparator.comparingLong((Record r) -> r.selfNanos).reversed());
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %-5s %12s %12s %12s %4s  %-16s %s%n",
+                "singleton", "kind", "self us", "wall us", "bytes", "runs", "thread", "chain"));
+        long total = 0;
+        for (Record r : records) {
+            if (r.isRoot()) {
+                total += r.wallNanos;
+            }
+            out.append(String.format("%-24s %-5s %12.1f %12.1f %12d %4d  %-16s %s%n",
+                    r.name, r.kind, r.selfNanos / 1e3, r.wallNanos / 1e3, r.allocatedBytes, r.attempts, r.thread,
+                    String.join(" -> ", r.chain)));
+        }
+        out.append(String.format("total %.1f us in %d singletons%n", total / 1e3, records.size()));
+        if (dropped() > 0) {
+            out.append(String.format("%d more initializations not kept%n", dropped()));
+        }
+        out.append("建议：").append(System.lineSeparator());
+        int advice = 0;
+        for (Record r : records) {
+            if (r.selfNanos < thresholdNanos) {
+                continue;
+            }
+            advice++;
+            if (r.kind == Kind.EAGER) {
+                out.append("  ").append(r.name).append("：类初始化时创建耗时较高，改为延时加载（静态内部类或 SingletonRegistry）")
+                        .append(System.lineSeparator());
+            } else if (r.isRoot()) {
+                out.append("  ").append(r.name).append("：首次访问耗时较高且没有上游依赖，可在启动时并行预热")
+                        .append(System.lineSeparator());
+            } else {
+                out.append("  ").append(r.name).append("：首次访问耗时较高，随 ").append(r.chain.get(0))
+                        .append(" 一起预热，或先于它单独预热").append(System.lineSeparator());
+            }
+        }
+        if (advice == 0) {
+            out.append("  无").append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.aqire.design.creation.single;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 单例启动预热
+ * <p>
+ * 饿汉在类初始化的线程上串行创建，静态内部类把创建推迟到第一个请求。这里按声明的依赖关系，
+ * 在启动时用 fork-join 线程池并行创建 SingletonRegistry 中的单例：互不依赖的并行创建，
+ * 有依赖的等依赖创建完再开始。预热期间业务线程照常调用 get()，已经创建好的直接返回，
+ * 还没创建好的只会阻塞在自己要的那个单例上。
+ *
+ * @date 2026/10/16 14:00
+ * --------------------------------------------
+ */
+public final class SingletonWarmup {
+    private final SingletonRegistry registry;
+    // key -> 它依赖的 key，保持声明顺序
+    private final Map<Object, List<Object>> graph = new LinkedHashMap<>();
+
+    public SingletonWarmup(SingletonRegistry registry) {
+        this.registry = registry;
+    }
+
+    // 声明一个需要预热的单例以及它依赖的单例，key 必须已在注册表中注册
+    public SingletonWarmup declare(Object key, Object... dependsOn) {
+        graph.computeIfAbsent(key, k -> new ArrayList<>()).addAll(Arrays.asList(dependsOn));
+        for (Object dependency : dependsOn) {
+            graph.computeIfAbsent(dependency, k -> new ArrayList<>());
+        }
+        return this;
+    }
+
+    public CompletableFuture<Void> start() {
+        return start(ForkJoinPool.commonPool());
+    }
+
+    // 开始预热，返回的 future 在所有单例创建完成后完成；任何一个失败，依赖它的单例不再预热，
+    // future 以该异常结束。依赖关系有环时直接抛出 IllegalArgumentException。
+    public CompletableFuture<Void> start(Executor pool) {
+        Map<Object, CompletableFuture<Void>> futures = new HashMap<>();
+        for (Object key : order()) {
+            List<Object> dependencies = graph.get(key);
+            Runnable warm = () -> registry.get(key);
+            CompletableFuture<Void> future;
+            if (dependencies.isEmpty()) {
+                future = CompletableFuture.runAsync(warm, pool);
+            } else {
+                CompletableFuture<?>[] upstream = new CompletableFuture<?>[dependencies.size()];
+                for (int i = 0; i < upstream.length; i++) {
+                    upstream[i] = futures.get(dependencies.get(i));
+                }
+                future = CompletableFuture.allOf(upstream).thenRunAsync(warm, pool);
+            }
+            futures.put(key, future);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    // 拓扑排序，依赖排在前面
+    private List<Object> order() {
+        Map<Object, Integer> pending = new HashMap<>();
+        Map<Object, List<Object>> dependents = new HashMap<>();
+        Deque<Object> ready = new ArrayDeque<>();
+        for (Map.Entry<Object, List<Object>> entry : graph.entrySet()) {
+            if (!registry.isRegistered(entry.getKey())) {
+                throw new IllegalArgumentException("未注册的单例：" + entry.getKey());
+            }
+            pending.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+            for (Object dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        List<Object> order = new ArrayList<>(graph.size());
+        while (!ready.isEmpty()) {
+            Object key = ready.poll();
+            order.add(key);
+            for (Object dependent : dependents.getOrDefault(key, new ArrayList<>())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() != graph.size()) {
+            List<Object> cyclic = new ArrayList<>();
+            for (Map.Entry<Object, Integer> entry : pending.entrySet()) {
+                if (entry.getValue() > 0) {
+                    cyclic.add(entry.getKey());
+                }
+            }
+            throw new IllegalArgumentException("单例依赖关系存在环：" + cyclic);
+        }
+        return order;
+    }
+}